@@ -0,0 +1,19 @@
+package com.hmdp.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * benchmarks.jar 的入口，参数原样交给JMH；未指定 -prof 时默认附加GC分析器，报告每次调用的分配字节数
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        if (!Arrays.asList(args).contains("-prof")) {
+            String[] withGc = Arrays.copyOf(args, args.length + 2);
+            withGc[args.length] = "-prof";
+            withGc[args.length + 1] = "gc";
+            args = withGc;
+        }
+        org.openjdk.jmh.Main.main(args);
+    }
+}
@@ -0,0 +1,76 @@
+package com.hmdp.benchmark;
+
+import cn.hutool.json.JSONUtil;
+import com.hmdp.entity.Shop;
+import com.hmdp.utils.cache.HashCodec;
+import com.hmdp.utils.cache.serializer.JsonCacheValueSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CacheClient读缓存的解码开销：Hash结构(convertHashToObject) vs String结构的JSON解码
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheDecodeBenchmark {
+
+    private final JsonCacheValueSerializer serializer = new JsonCacheValueSerializer();
+
+    private Map<Object, Object> shopHash;
+    private String shopJson;
+    private byte[] shopBytes;
+
+    @Setup
+    public void setup() {
+        LocalDateTime now = LocalDateTime.of(2022, 1, 2, 3, 4, 5);
+        Shop shop = new Shop().setId(1L).setName("103茶餐厅").setTypeId(1L)
+                .setImages("https://qcloud.dpfile.com/pc/jiclIsCKmOI2arxKN1Uf0Hx3PucIJH8q0QSz-Z8llzcN56-_QiKuOvyio1OOxsRtFoXqu0G3iT2T27qat3WhLVEuLYk00OmSS1IdNpm8K8sG4JN9RIm2mTKcbLtc2o2vfCF2ubeXzk49OsGrXt_KYDCngOyCwZK-s3fqawWswzk.jpg")
+                .setArea("大关").setAddress("金华路锦昌文华苑29号").setX(120.149192).setY(30.316078)
+                .setAvgPrice(80L).setSold(4215).setComments(3035).setScore(37).setOpenHours("10:00-22:00")
+                .setCreateTime(now).setUpdateTime(now);
+        shopHash = new HashMap<>(HashCodec.of(Shop.class).encode(shop));
+        shopJson = JSONUtil.toJsonStr(shop);
+        shopBytes = serializer.serialize(shop);
+    }
+
+    /**
+     * 与 CacheClient#convertHashToObject 相同
+     */
+    @Benchmark
+    public Shop hashCodec() {
+        return HashCodec.of(Shop.class).decode(shopHash);
+    }
+
+    /**
+     * queryWithPassThrough 等String结构缓存的解码方式
+     */
+    @Benchmark
+    public Shop hutoolJson() {
+        return JSONUtil.toBean(shopJson, Shop.class);
+    }
+
+    /**
+     * 逻辑过期缓存条目的解码方式
+     */
+    @Benchmark
+    public Shop jacksonSerializer() {
+        return serializer.deserialize(shopBytes, 0, shopBytes.length, Shop.class);
+    }
+}
@@ -0,0 +1,180 @@
+package com.hmdp.benchmark;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.bean.copier.CopyOptions;
+import cn.hutool.core.date.DatePattern;
+import com.hmdp.dto.UserDTO;
+import com.hmdp.entity.Blog;
+import com.hmdp.entity.Shop;
+import com.hmdp.utils.cache.HashCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hash与Bean互转：CacheClient原有的Hutool反射方案 vs {@link HashCodec}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HashCodecBenchmark {
+
+    private static final DateTimeFormatter NORM_DATETIME_PATTERN = DatePattern.NORM_DATETIME_FORMATTER;
+
+    private Shop shop;
+    private Blog blog;
+    private UserDTO user;
+    private Map<Object, Object> shopHash;
+    private Map<Object, Object> blogHash;
+    private Map<Object, Object> userHash;
+
+    @Setup
+    public void setup() {
+        LocalDateTime now = LocalDateTime.of(2022, 1, 2, 3, 4, 5);
+        shop = new Shop().setId(1L).setName("103茶餐厅").setTypeId(1L)
+                .setImages("https://qcloud.dpfile.com/pc/jiclIsCKmOI2arxKN1Uf0Hx3PucIJH8q0QSz-Z8llzcN56-_QiKuOvyio1OOxsRtFoXqu0G3iT2T27qat3WhLVEuLYk00OmSS1IdNpm8K8sG4JN9RIm2mTKcbLtc2o2vfCF2ubeXzk49OsGrXt_KYDCngOyCwZK-s3fqawWswzk.jpg")
+                .setArea("大关").setAddress("金华路锦昌文华苑29号").setX(120.149192).setY(30.316078)
+                .setAvgPrice(80L).setSold(4215).setComments(3035).setScore(37).setOpenHours("10:00-22:00")
+                .setCreateTime(now).setUpdateTime(now);
+        blog = new Blog().setId(4L).setShopId(4L).setUserId(2L).setTitle("无尽浪漫的夜晚丨在万花丛中摇晃着红酒杯🍷品战斧牛排🥩")
+                .setImages("/imgs/blogs/7/14/4771fefb-1a87-4252-816c-9f7ec41ffa4a.jpg").setContent("生活就是一半烟火·一半诗意")
+                .setLiked(3).setComments(104).setCreateTime(now).setUpdateTime(now);
+        user = new UserDTO();
+        user.setId(1010L);
+        user.setNickName("可可今天不吃肉");
+        user.setIcon("/imgs/icons/kkjtbcr.jpg");
+        shopHash = new HashMap<>(HashCodec.of(Shop.class).encode(shop));
+        blogHash = new HashMap<>(HashCodec.of(Blog.class).encode(blog));
+        userHash = new HashMap<>(HashCodec.of(UserDTO.class).encode(user));
+    }
+
+    @Benchmark
+    public Shop decodeShopReflection() {
+        return convertHashToObject(shopHash, Shop.class);
+    }
+
+    @Benchmark
+    public Shop decodeShopCodec() {
+        return HashCodec.of(Shop.class).decode(shopHash);
+    }
+
+    @Benchmark
+    public Blog decodeBlogReflection() {
+        return convertHashToObject(blogHash, Blog.class);
+    }
+
+    @Benchmark
+    public Blog decodeBlogCodec() {
+        return HashCodec.of(Blog.class).decode(blogHash);
+    }
+
+    @Benchmark
+    public UserDTO decodeUserReflection() {
+        return convertHashToObject(userHash, UserDTO.class);
+    }
+
+    @Benchmark
+    public UserDTO decodeUserCodec() {
+        return HashCodec.of(UserDTO.class).decode(userHash);
+    }
+
+    @Benchmark
+    public Map<String, String> encodeShopReflection() {
+        return beanToHash(shop);
+    }
+
+    @Benchmark
+    public Map<String, String> encodeShopCodec() {
+        return HashCodec.of(Shop.class).encode(shop);
+    }
+
+    @Benchmark
+    public Map<String, String> encodeBlogReflection() {
+        return beanToHash(blog);
+    }
+
+    @Benchmark
+    public Map<String, String> encodeBlogCodec() {
+        return HashCodec.of(Blog.class).encode(blog);
+    }
+
+    // 以下为CacheClient改造前的实现，作为对照
+
+    private static Map<String, String> beanToHash(Object value) {
+        Map<String, Object> beanMap = BeanUtil.beanToMap(value, new HashMap<>(),
+                CopyOptions.create()
+                        .setIgnoreNullValue(true)
+                        .setFieldValueEditor((fieldName, fieldValue) ->
+                                fieldValue != null ? fieldValue.toString() : null));
+        Map<String, String> hashData = new HashMap<>();
+        for (Map.Entry<String, Object> entry : beanMap.entrySet()) {
+            if (entry.getValue() != null) {
+                hashData.put(entry.getKey(), entry.getValue().toString());
+            }
+        }
+        return hashData;
+    }
+
+    private static <R> R convertHashToObject(Map<Object, Object> hashMap, Class<R> type) {
+        Map<String, Object> convertedMap = new HashMap<>();
+        for (Map.Entry<Object, Object> entry : hashMap.entrySet()) {
+            Object value = entry.getValue();
+            convertedMap.put(entry.getKey().toString(), value != null ? value.toString() : null);
+        }
+        return BeanUtil.mapToBean(convertedMap, type, true, createTypeAwareCopyOptions(type));
+    }
+
+    private static <R> CopyOptions createTypeAwareCopyOptions(Class<R> type) {
+        Field[] fields = type.getDeclaredFields();
+        Map<String, Class<?>> fieldTypes = new HashMap<>();
+        for (Field field : fields) {
+            fieldTypes.put(field.getName(), field.getType());
+        }
+        return new CopyOptions()
+                .ignoreNullValue()
+                .setFieldValueEditor((fieldName, fieldValue) -> {
+                    if (fieldValue == null) {
+                        return null;
+                    }
+                    String strValue = fieldValue.toString();
+                    if (strValue.isEmpty()) {
+                        return null;
+                    }
+                    Class<?> fieldType = fieldTypes.get(fieldName);
+                    if (fieldType == null) {
+                        return strValue;
+                    }
+                    try {
+                        if (fieldType == Long.class || fieldType == long.class) {
+                            return Long.parseLong(strValue);
+                        } else if (fieldType == Integer.class || fieldType == int.class) {
+                            return Integer.parseInt(strValue);
+                        } else if (fieldType == Double.class || fieldType == double.class) {
+                            return Double.parseDouble(strValue);
+                        } else if (fieldType == LocalDateTime.class) {
+                            return LocalDateTime.parse(strValue, NORM_DATETIME_PATTERN);
+                        }
+                    } catch (Exception e) {
+                        return strValue;
+                    }
+                    return strValue;
+                });
+    }
+}
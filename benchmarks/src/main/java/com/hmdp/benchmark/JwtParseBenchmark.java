@@ -0,0 +1,66 @@
+package com.hmdp.benchmark;
+
+import com.hmdp.utils.jwt.JwtClaimsConstant;
+import com.hmdp.utils.jwt.JwtUtil;
+import com.hmdp.utils.jwt.VerifiedTokenCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT解析：{@link JwtUtil#parseJWT} vs 自行复用解析器 vs 已验签token缓存 {@link VerifiedTokenCache}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtParseBenchmark {
+
+    static final String SECRET_KEY = "hmdp-benchmark-secret-key-0123456789abcdef";
+
+    private String token;
+    private JwtParser parser;
+    private VerifiedTokenCache verifiedTokens;
+
+    @Setup
+    public void setup() {
+        token = JwtUtil.createJWT(SECRET_KEY, TimeUnit.HOURS.toMillis(2),
+                Collections.singletonMap(JwtClaimsConstant.USER_ID, 1010L));
+        parser = Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8)))
+                .build();
+        verifiedTokens = new VerifiedTokenCache(SECRET_KEY, 1000);
+    }
+
+    @Benchmark
+    public Claims parseJwtUtil() {
+        return JwtUtil.parseJWT(token, SECRET_KEY);
+    }
+
+    @Benchmark
+    public Claims parseReusedParser() {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    @Benchmark
+    public Long verifiedTokenCache() {
+        return verifiedTokens.getUserId(token);
+    }
+}
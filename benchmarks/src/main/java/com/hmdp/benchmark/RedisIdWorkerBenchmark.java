@@ -0,0 +1,44 @@
+package com.hmdp.benchmark;
+
+import com.hmdp.utils.RedisIdWorker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RedisIdWorker#nextId} 除INCR之外的开销：取当前时间、格式化日期、拼接key
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedisIdWorkerBenchmark {
+
+    private RedisIdWorker idWorker;
+
+    @Setup
+    public void setup() throws Exception {
+        idWorker = new RedisIdWorker();
+        Field field = RedisIdWorker.class.getDeclaredField("stringRedisTemplate");
+        field.setAccessible(true);
+        field.set(idWorker, RedisStubs.template(Collections.emptyMap()));
+    }
+
+    @Benchmark
+    public long nextId() {
+        return idWorker.nextId("order");
+    }
+}
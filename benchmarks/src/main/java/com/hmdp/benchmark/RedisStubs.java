@@ -0,0 +1,55 @@
+package com.hmdp.benchmark;
+
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 不连接Redis的StringRedisTemplate替身，只实现基准测试用到的命令，其余方法返回null
+ */
+final class RedisStubs {
+
+    private RedisStubs() {
+    }
+
+    /**
+     * HGETALL 固定返回给定的Hash，EXPIRE 恒为成功，INCR 使用本地计数器
+     */
+    static StringRedisTemplate template(Map<Object, Object> hash) {
+        AtomicLong counter = new AtomicLong();
+        HashOperations<String, Object, Object> hashOps = proxy(HashOperations.class, "entries", () -> hash);
+        ValueOperations<String, String> valueOps = proxy(ValueOperations.class, "increment", counter::incrementAndGet);
+        return new StringRedisTemplate() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <HK, HV> HashOperations<String, HK, HV> opsForHash() {
+                return (HashOperations<String, HK, HV>) (HashOperations<String, ?, ?>) hashOps;
+            }
+
+            @Override
+            public ValueOperations<String, String> opsForValue() {
+                return valueOps;
+            }
+
+            @Override
+            public Boolean expire(String key, long timeout, TimeUnit unit) {
+                return Boolean.TRUE;
+            }
+        };
+    }
+
+    /**
+     * 只响应指定方法，结果由 result 提供
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<?> type, String method, Supplier<Object> result) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (p, m, args) -> m.getName().equals(method) ? result.get() : null);
+    }
+}
@@ -0,0 +1,80 @@
+package com.hmdp.benchmark;
+
+import com.hmdp.dto.UserDTO;
+import com.hmdp.properties.JwtProperties;
+import com.hmdp.utils.UserHolder;
+import com.hmdp.utils.cache.HashCodec;
+import com.hmdp.utils.interceptor.RefreshTokenInterceptor;
+import com.hmdp.utils.jwt.JwtClaimsConstant;
+import com.hmdp.utils.jwt.JwtUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已登录请求经过 {@link RefreshTokenInterceptor} 的开销：解析JWT、读取登录Hash、写入UserHolder、刷新有效期
+ * Redis由 {@link RedisStubs} 代替，测得的是拦截器自身的CPU和分配。
+ * 日志级别为WARN（见 logback.xml），结果不含拦截器DEBUG日志的开销；应用以DEBUG级别运行时实际耗时更高
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RefreshTokenInterceptorBenchmark {
+
+    private RefreshTokenInterceptor interceptor;
+    private HttpServletRequest request;
+
+    @Setup
+    public void setup() {
+        JwtProperties jwtProperties = new JwtProperties();
+        jwtProperties.setUserSecretKey(JwtParseBenchmark.SECRET_KEY);
+        String token = JwtUtil.createJWT(JwtParseBenchmark.SECRET_KEY, TimeUnit.HOURS.toMillis(2),
+                Collections.singletonMap(JwtClaimsConstant.USER_ID, 1010L));
+
+        UserDTO user = new UserDTO();
+        user.setId(1010L);
+        user.setNickName("可可今天不吃肉");
+        user.setIcon("/imgs/icons/kkjtbcr.jpg");
+        Map<Object, Object> userHash = new HashMap<>(HashCodec.of(UserDTO.class).encode(user));
+        userHash.put("jwttoken", token);
+
+        interceptor = new RefreshTokenInterceptor(RedisStubs.template(userHash), jwtProperties);
+        String authorization = "Bearer " + token;
+        request = (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (p, m, args) -> {
+                    switch (m.getName()) {
+                        case "getHeader":
+                            return "Authorization".equals(args[0]) ? authorization : null;
+                        case "getRequestURI":
+                            return "/shop/1";
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    @Benchmark
+    public UserDTO preHandle() throws Exception {
+        interceptor.preHandle(request, null, null);
+        UserDTO user = UserHolder.getUser();
+        interceptor.afterCompletion(request, null, null, null);
+        return user;
+    }
+}
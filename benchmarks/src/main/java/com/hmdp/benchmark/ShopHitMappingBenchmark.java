@@ -0,0 +1,73 @@
+package com.hmdp.benchmark;
+
+import com.hmdp.dto.ShopVO;
+import com.hmdp.utils.es.ShopHitMapper;
+import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商铺搜索一页命中结果的映射开销(searchShops第4步)，包含_source的JSON解析
+ * SearchHit会缓存解析后的_source，所以每次调用都重新构造命中
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShopHitMappingBenchmark {
+
+    private static final DocValueFormat[] SORT_FORMATS = {DocValueFormat.RAW};
+
+    @Param({"10", "50"})
+    private int pageSize;
+
+    private byte[][] sources;
+
+    @Setup
+    public void setup() {
+        sources = new byte[pageSize][];
+        for (int i = 0; i < pageSize; i++) {
+            String json = "{\"id\":" + (i + 1) + ",\"name\":\"103茶餐厅\",\"typeId\":1,"
+                    + "\"images\":\"https://qcloud.dpfile.com/pc/jiclIsCKmOI2arxKN1Uf0Hx3PucIJH8q0QSz-Z8llzcN56-_QiKuOvyio1OOxsRtFoXqu0G3iT2T27qat3WhLVEuLYk00OmSS1IdNpm8K8sG4JN9RIm2mTKcbLtc2o2vfCF2ubeXzk49OsGrXt_KYDCngOyCwZK-s3fqawWswzk.jpg\","
+                    + "\"area\":\"大关\",\"address\":\"金华路锦昌文华苑29号\",\"location\":\"30.316078,120.149192\","
+                    + "\"avgPrice\":80,\"sold\":4215,\"comments\":3035,\"score\":37,\"openHours\":\"10:00-22:00\"}";
+            sources[i] = json.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public List<ShopVO> mapByDistance() {
+        return ShopHitMapper.toShopVOs(hits(), true);
+    }
+
+    private SearchHits hits() {
+        SearchHit[] hits = new SearchHit[pageSize];
+        for (int i = 0; i < pageSize; i++) {
+            SearchHit hit = new SearchHit(i, String.valueOf(i + 1), null, Collections.emptyMap(), Collections.emptyMap());
+            hit.sourceRef(new BytesArray(sources[i]));
+            hit.sortValues(new Object[]{0.1 * i}, SORT_FORMATS);
+            hits[i] = hit;
+        }
+        return new SearchHits(hits, new TotalHits(pageSize, TotalHits.Relation.EQUAL_TO), Float.NaN);
+    }
+}
@@ -0,0 +1,38 @@
+package com.hmdp.loadtest;
+
+import org.apache.qpid.server.SystemLauncher;
+import org.apache.qpid.server.model.SystemConfig;
+
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 内存模式的AMQP 0-9-1代理(Qpid Broker-J)，代替RabbitMQ
+ * 只有一个默认虚拟主机，账号 guest/guest，消息不落盘
+ */
+class EmbeddedAmqpBroker {
+
+    static final String USERNAME = "guest";
+    static final String PASSWORD = "guest";
+
+    private final SystemLauncher launcher = new SystemLauncher();
+
+    void start(int port) throws Exception {
+        Map<String, String> context = new HashMap<>();
+        context.put("qpid.amqp_port", String.valueOf(port));
+        context.put("qpid.work_dir", Files.createTempDirectory("qpid").toString());
+
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(SystemConfig.TYPE, "Memory");
+        attributes.put(SystemConfig.INITIAL_CONFIGURATION_LOCATION,
+                EmbeddedAmqpBroker.class.getResource("/qpid-config.json").toExternalForm());
+        attributes.put(SystemConfig.STARTUP_LOGGED_TO_SYSTEM_OUT, false);
+        attributes.put(SystemConfig.CONTEXT, context);
+        launcher.startup(attributes);
+    }
+
+    void stop() {
+        launcher.shutdown();
+    }
+}
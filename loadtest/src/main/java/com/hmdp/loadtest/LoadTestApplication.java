@@ -0,0 +1,78 @@
+package com.hmdp.loadtest;
+
+import com.hmdp.HmDianPingApplication;
+import com.hmdp.config.RedissonConfig;
+import org.mybatis.spring.annotation.MapperScan;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.Queue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 压测用的应用入口，与 {@link HmDianPingApplication} 扫描相同的组件，
+ * 用单机Redisson替换哨兵配置，并关闭连接Canal服务端的自动配置
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration(excludeName = {
+        "top.javatool.canal.client.spring.boot.autoconfigure.SimpleClientAutoConfiguration",
+        "top.javatool.canal.client.spring.boot.autoconfigure.ClusterClientAutoConfiguration",
+        "top.javatool.canal.client.spring.boot.autoconfigure.ZookeeperClientAutoConfiguration",
+        "top.javatool.canal.client.spring.boot.autoconfigure.KafkaClientAutoConfiguration"})
+@ComponentScan(basePackages = "com.hmdp", excludeFilters = {
+        @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE,
+                classes = {HmDianPingApplication.class, RedissonConfig.class}),
+        @ComponentScan.Filter(type = FilterType.REGEX, pattern = "com\\.hmdp\\.loadtest\\..*")})
+@MapperScan("com.hmdp.mapper")
+@EnableAspectJAutoProxy(exposeProxy = true)
+@EnableScheduling
+public class LoadTestApplication {
+
+    /**
+     * Qpid不支持的RabbitMQ队列扩展参数
+     */
+    private static final List<String> RABBIT_ONLY_ARGUMENTS = Arrays.asList(
+            "x-message-ttl", "x-dead-letter-exchange", "x-dead-letter-routing-key");
+
+    @Bean(destroyMethod = "shutdown")
+    @Primary
+    public RedissonClient redisson(@Value("${spring.redis.host}") String host,
+                                   @Value("${spring.redis.port}") int port) {
+        Config config = new Config();
+        config.useSingleServer().setAddress("redis://" + host + ":" + port);
+        return Redisson.create(config);
+    }
+
+    /**
+     * 声明队列前去掉Qpid不支持的参数，否则整个声明通道被关闭、订单队列无法绑定。
+     * 延迟重试队列因此不会过期回流，进入重试的订单在报告中计为未落库
+     */
+    @Bean
+    public static BeanPostProcessor rabbitOnlyArgumentsRemover() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof Queue) {
+                    ((Queue) bean).getArguments().keySet().removeAll(RABBIT_ONLY_ARGUMENTS);
+                } else if (bean instanceof Declarables) {
+                    ((Declarables) bean).getDeclarablesByType(Queue.class)
+                            .forEach(queue -> queue.getArguments().keySet().removeAll(RABBIT_ONLY_ARGUMENTS));
+                }
+                return bean;
+            }
+        };
+    }
+}
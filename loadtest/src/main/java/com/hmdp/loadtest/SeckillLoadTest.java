@@ -0,0 +1,335 @@
+package com.hmdp.loadtest;
+
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.hmdp.entity.Voucher;
+import com.hmdp.properties.JwtProperties;
+import com.hmdp.service.IVoucherService;
+import com.hmdp.utils.jwt.JwtClaimsConstant;
+import com.hmdp.utils.jwt.JwtUtil;
+import com.hmdp.utils.seckill.SeckillStockRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.hmdp.utils.constans.RedisConstants.LOGIN_USER_KEY;
+import static com.hmdp.utils.constans.RedisConstants.LOGIN_USER_TTL;
+
+/**
+ * 秒杀压测
+ * 在本进程内启动内嵌Redis、内存AMQP代理和MySQL模式的H2，再以 {@link LoadTestApplication} 启动应用；
+ * 在内存中生成用户和登录token后，N个线程同时向同一张秒杀券发起请求，
+ * 等待订单落库后输出吞吐量、p50/p99/p999延迟、超卖数和重复下单数，出现超卖、重复或丢单时以非0状态退出。
+ * <p>
+ * 参数：--users=2000 --stock=500 --threads=200 --clicks=3 --drain-timeout=60 --seed=1，
+ * 其余 --key=value 原样传给应用，例如 --hm.seckill.transport=redis-stream
+ */
+@Slf4j
+public class SeckillLoadTest {
+
+    private final Map<String, String> options;
+    private final int users;
+    private final int stock;
+    private final int threads;
+    private final int clicks;
+    private final long drainTimeout;
+    private final long seed;
+
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    /**
+     * 用户 -> 抢到的订单id，重复点击返回的是同一个订单id
+     */
+    private final Map<Long, String> acceptedOrders = new ConcurrentHashMap<>();
+    private final LongAdder duplicateAccepted = new LongAdder();
+
+    private SeckillLoadTest(Map<String, String> options) {
+        this.options = options;
+        this.users = Integer.parseInt(option("users", "2000"));
+        this.stock = Integer.parseInt(option("stock", "500"));
+        this.threads = Integer.parseInt(option("threads", "200"));
+        this.clicks = Integer.parseInt(option("clicks", "3"));
+        this.drainTimeout = TimeUnit.SECONDS.toMillis(Long.parseLong(option("drain-timeout", "60")));
+        this.seed = Long.parseLong(option("seed", "1"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("参数格式应为 --key=value: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "true" : arg.substring(eq + 1));
+        }
+        System.exit(new SeckillLoadTest(options).run());
+    }
+
+    private int run() throws Exception {
+        // HttpURLConnection默认每个地址只保留5个空闲连接，并发线程多时会不断新建连接
+        System.setProperty("http.maxConnections", String.valueOf(threads));
+        int redisPort = freePort();
+        int amqpPort = freePort();
+        RedisServer redis = RedisServer.newRedisServer().bind("127.0.0.1").port(redisPort)
+                .setting("save \"\"").build();
+        EmbeddedAmqpBroker broker = new EmbeddedAmqpBroker();
+        redis.start();
+        ConfigurableApplicationContext context = null;
+        try {
+            broker.start(amqpPort);
+            context = SpringApplication.run(LoadTestApplication.class, springArgs(redisPort, amqpPort));
+            return storm(context);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            broker.stop();
+            redis.stop();
+        }
+    }
+
+    private String[] springArgs(int redisPort, int amqpPort) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        // 建表放在连接初始化中，部分组件在Spring执行初始化脚本之前就会查询数据库
+        properties.put("spring.datasource.url", "jdbc:h2:mem:hmdp;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;"
+                + "INIT=RUNSCRIPT FROM 'classpath:loadtest-schema.sql'");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.redis.host", "127.0.0.1");
+        properties.put("spring.redis.port", String.valueOf(redisPort));
+        properties.put("spring.rabbitmq.host", "127.0.0.1");
+        properties.put("spring.rabbitmq.port", String.valueOf(amqpPort));
+        properties.put("spring.rabbitmq.username", EmbeddedAmqpBroker.USERNAME);
+        properties.put("spring.rabbitmq.password", EmbeddedAmqpBroker.PASSWORD);
+        properties.put("logging.level.root", "warn");
+        properties.put("logging.level.com.hmdp", "warn");
+        properties.put("logging.level.com.hmdp.loadtest", "info");
+        // 压测参数之外的选项覆盖应用配置
+        List<String> own = Arrays.asList("users", "stock", "threads", "clicks", "drain-timeout", "seed");
+        options.forEach((key, value) -> {
+            if (!own.contains(key)) {
+                properties.put(key, value);
+            }
+        });
+        List<String> args = new ArrayList<>(properties.size());
+        properties.forEach((key, value) -> args.add("--" + key + "=" + value));
+        return args.toArray(new String[0]);
+    }
+
+    private int storm(ConfigurableApplicationContext context) throws Exception {
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        StringRedisTemplate stringRedisTemplate = context.getBean(StringRedisTemplate.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        Long voucherId = createVoucher(context.getBean(IVoucherService.class));
+        String[] tokens = createUsers(stringRedisTemplate, context.getBean(JwtProperties.class));
+        String url = "http://127.0.0.1:" + port + "/voucher-order/seckill/" + voucherId;
+
+        // 每个用户点击clicks次，打乱顺序后由所有线程同时开始抢
+        List<Integer> requests = new ArrayList<>(users * clicks);
+        for (int user = 0; user < users; user++) {
+            for (int i = 0; i < clicks; i++) {
+                requests.add(user);
+            }
+        }
+        Collections.shuffle(requests, new Random(seed));
+        long[] latencies = new long[requests.size()];
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    int i;
+                    while ((i = next.getAndIncrement()) < requests.size()) {
+                        int user = requests.get(i);
+                        long begin = System.nanoTime();
+                        JSONObject result = fire(url, tokens[user]);
+                        latencies[i] = System.nanoTime() - begin;
+                        record(user + 1L, result);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        log.info("开始压测: users={}, stock={}, threads={}, clicks={}", users, stock, threads, clicks);
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        pool.shutdown();
+
+        // 等待异步下单全部落库
+        long deadline = System.currentTimeMillis() + drainTimeout;
+        long orders = countOrders(jdbcTemplate, voucherId);
+        long accepted = acceptedOrders.size();
+        while (orders < accepted && System.currentTimeMillis() < deadline) {
+            Thread.sleep(200);
+            orders = countOrders(jdbcTemplate, voucherId);
+        }
+        long drained = System.nanoTime() - begin;
+        if (orders < accepted) {
+            log.warn("等待订单落库超时，未落库订单可能仍在队列中，可增大 --drain-timeout");
+        }
+
+        Long duplicates = jdbcTemplate.queryForObject("select count(*) from (select user_id from tb_voucher_order "
+                + "where voucher_id = ? group by user_id having count(*) > 1) t", Long.class, voucherId);
+        Integer dbStock = jdbcTemplate.queryForObject("select stock from tb_seckill_voucher where voucher_id = ?",
+                Integer.class, voucherId);
+        long[] redisStock = context.getBean(SeckillStockRouter.class)
+                .readStock(Collections.singletonList(voucherId)).get(voucherId);
+
+        long oversold = Math.max(0, Math.max(orders, accepted) - stock);
+        long lost = Math.max(0, accepted - orders);
+        long duplicated = (duplicates == null ? 0 : duplicates) + duplicateAccepted.sum();
+        Arrays.sort(latencies);
+        System.out.println();
+        System.out.println("========== 秒杀压测结果 ==========");
+        System.out.printf("用户数=%d, 库存=%d, 并发线程=%d, 每人点击=%d%n", users, stock, threads, clicks);
+        System.out.printf("请求数=%d, 耗时=%.1fms, 吞吐量=%.0f req/s%n", latencies.length, elapsed / 1e6,
+                latencies.length / (elapsed / 1e9));
+        System.out.printf("延迟(ms): p50=%.2f, p99=%.2f, p999=%.2f, max=%.2f%n", percentile(latencies, 0.5),
+                percentile(latencies, 0.99), percentile(latencies, 0.999), latencies[latencies.length - 1] / 1e6);
+        System.out.println("响应分布: " + new TreeMap<>(outcomes));
+        System.out.printf("抢购成功=%d, 已落库订单=%d, 落库完成耗时=%.1fms%n", accepted, orders, drained / 1e6);
+        System.out.printf("剩余库存: 数据库=%s, Redis=%s, Redis下单用户=%s%n", dbStock,
+                redisStock == null ? null : redisStock[0], redisStock == null ? null : redisStock[1]);
+        System.out.printf("超卖=%d, 重复下单=%d, 未落库=%d%n", oversold, duplicated, lost);
+        return oversold > 0 || duplicated > 0 || lost > 0 ? 1 : 0;
+    }
+
+    private Long createVoucher(IVoucherService voucherService) {
+        LocalDateTime now = LocalDateTime.now();
+        Voucher voucher = new Voucher().setShopId(1L).setTitle("压测秒杀券").setPayValue(100L).setActualValue(1000L)
+                .setType(1).setStatus(1).setStock(stock)
+                .setBeginTime(now.minusMinutes(1)).setEndTime(now.plusHours(1));
+        voucherService.addSeckillVoucher(voucher);
+        return voucher.getId();
+    }
+
+    /**
+     * 用户id为 1..users，按登录流程写入Redis登录信息，返回各用户的token
+     */
+    private String[] createUsers(StringRedisTemplate stringRedisTemplate, JwtProperties jwtProperties) {
+        String[] tokens = new String[users];
+        for (int i = 0; i < users; i++) {
+            Map<String, Object> claims = new HashMap<>();
+            claims.put(JwtClaimsConstant.USER_ID, i + 1L);
+            tokens[i] = JwtUtil.createJWT(jwtProperties.getUserSecretKey(), jwtProperties.getUserTtl(), claims);
+        }
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (int i = 0; i < users; i++) {
+                long userId = i + 1L;
+                Map<String, String> user = new HashMap<>(4);
+                user.put("id", String.valueOf(userId));
+                user.put("nickName", "user_" + userId);
+                user.put("icon", "");
+                user.put("jwttoken", tokens[i]);
+                conn.hMSet(LOGIN_USER_KEY + userId, user);
+                conn.expire(LOGIN_USER_KEY + userId, LOGIN_USER_TTL);
+            }
+            return null;
+        });
+        return tokens;
+    }
+
+    /**
+     * 发起一次秒杀请求，网络异常和非200响应转换为失败结果
+     */
+    private JSONObject fire(String url, String token) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Authorization", "Bearer " + token);
+            connection.setConnectTimeout(5000);
+            connection.setReadTimeout(30000);
+            int status = connection.getResponseCode();
+            InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            String body = in == null ? "" : IoUtil.read(in, StandardCharsets.UTF_8);
+            return status == 200 ? JSONUtil.parseObj(body) : failure("HTTP " + status);
+        } catch (Exception e) {
+            if (connection != null) {
+                connection.disconnect();
+            }
+            return failure(e.getClass().getSimpleName());
+        }
+    }
+
+    private static JSONObject failure(String reason) {
+        return new JSONObject().set("success", false).set("errorMsg", reason);
+    }
+
+    private void record(Long userId, JSONObject result) {
+        boolean success = Boolean.TRUE.equals(result.getBool("success"));
+        outcomes.computeIfAbsent(success ? "成功" : String.valueOf(result.getStr("errorMsg")), k -> new LongAdder())
+                .increment();
+        if (!success) {
+            return;
+        }
+        String orderId = result.getStr("data");
+        String previous = acceptedOrders.putIfAbsent(userId, orderId);
+        if (previous != null && !previous.equals(orderId)) {
+            // 同一用户拿到了两个不同的订单
+            duplicateAccepted.increment();
+        }
+    }
+
+    private static long countOrders(JdbcTemplate jdbcTemplate, Long voucherId) {
+        Long count = jdbcTemplate.queryForObject("select count(*) from tb_voucher_order where voucher_id = ?",
+                Long.class, voucherId);
+        return count == null ? 0 : count;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private String option(String key, String defaultValue) {
+        return options.getOrDefault(key, defaultValue);
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+-- 压测用的H2表结构(MySQL模式)，只包含启动预热和秒杀链路访问的表，字段与 hmdp.sql 一致
+CREATE TABLE IF NOT EXISTS tb_shop (
+  id bigint NOT NULL AUTO_INCREMENT,
+  name varchar(128) NOT NULL,
+  type_id bigint NOT NULL,
+  images varchar(1024) NOT NULL,
+  area varchar(128) NULL DEFAULT NULL,
+  address varchar(255) NOT NULL,
+  x double NOT NULL,
+  y double NOT NULL,
+  avg_price bigint NULL DEFAULT NULL,
+  sold int NOT NULL,
+  comments int NOT NULL,
+  score int NOT NULL,
+  open_hours varchar(32) NULL DEFAULT NULL,
+  create_time timestamp NULL DEFAULT CURRENT_TIMESTAMP,
+  update_time timestamp NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS tb_user (
+  id bigint NOT NULL AUTO_INCREMENT,
+  phone varchar(11) NOT NULL,
+  password varchar(128) NULL DEFAULT '',
+  nick_name varchar(32) NULL DEFAULT '',
+  icon varchar(255) NULL DEFAULT '',
+  create_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  update_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id),
+  UNIQUE KEY uniqe_key_phone (phone)
+);
+
+CREATE TABLE IF NOT EXISTS tb_voucher (
+  id bigint NOT NULL AUTO_INCREMENT,
+  shop_id bigint NULL DEFAULT NULL,
+  title varchar(255) NOT NULL,
+  sub_title varchar(255) NULL DEFAULT NULL,
+  rules varchar(1024) NULL DEFAULT NULL,
+  pay_value bigint NOT NULL,
+  actual_value bigint NOT NULL,
+  type tinyint NOT NULL DEFAULT 0,
+  status tinyint NOT NULL DEFAULT 1,
+  create_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  update_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS tb_seckill_voucher (
+  voucher_id bigint NOT NULL,
+  stock int NOT NULL,
+  create_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  begin_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  end_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  update_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (voucher_id)
+);
+
+CREATE TABLE IF NOT EXISTS tb_voucher_order (
+  id bigint NOT NULL,
+  user_id bigint NOT NULL,
+  voucher_id bigint NOT NULL,
+  pay_type tinyint NOT NULL DEFAULT 1,
+  status tinyint NOT NULL DEFAULT 1,
+  create_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  pay_time timestamp NULL DEFAULT NULL,
+  use_time timestamp NULL DEFAULT NULL,
+  refund_time timestamp NULL DEFAULT NULL,
+  update_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id)
+);
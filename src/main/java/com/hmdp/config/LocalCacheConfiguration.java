@@ -2,6 +2,9 @@ package com.hmdp.config;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.hmdp.properties.CacheProperties;
+import com.hmdp.utils.cache.TieredCache;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -13,15 +16,45 @@ import java.util.concurrent.TimeUnit;
 @Configuration
 public class LocalCacheConfiguration {
 
+    /**
+     * 商铺本地缓存，大小和过期时间取 hm.cache.tiers.shop 配置
+     */
     @Bean("localCacheManager")
-    public Cache<String, Object> localCacheManager() {
+    public Cache<String, Object> localCacheManager(CacheProperties cacheProperties) {
+        CacheProperties.Tier tier = cacheProperties.tier("shop");
+        return buildLocalCache(tier.getMaximumSize(), tier.getLocalTtl(), tier.getNegativeTtl());
+    }
+
+    /**
+     * 创建本地缓存，正常数据与空值占位使用不同的过期时间
+     * @param maximumSize 缓存的最大条数
+     * @param ttlSeconds 写入或者更新后的过期时间(秒)
+     * @param negativeTtlSeconds 空值占位 {@link TieredCache#NULL_VALUE} 的过期时间(秒)
+     */
+    public static Cache<String, Object> buildLocalCache(long maximumSize, long ttlSeconds, long negativeTtlSeconds) {
+        long ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        long negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
         return Caffeine.newBuilder()
-                //写入或者更新5s后，缓存过期并失效, 实际项目中肯定不会那么短时间就过期，根据具体情况设置即可
-                .expireAfterWrite(120, TimeUnit.SECONDS)
+                .expireAfter(new Expiry<String, Object>() {
+                    @Override
+                    public long expireAfterCreate(String key, Object value, long currentTime) {
+                        return value == TieredCache.NULL_VALUE ? negativeTtlNanos : ttlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Object value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Object value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
                 // 初始的缓存空间大小
-                .initialCapacity(50)
+                .initialCapacity((int) Math.min(50, maximumSize))
                 // 缓存的最大条数，通过 Window TinyLfu算法控制整个缓存大小
-                .maximumSize(500)
+                .maximumSize(maximumSize)
                 //打开数据收集功能
                 .recordStats()
                 .build();
@@ -1,16 +1,26 @@
 package com.hmdp.config;
 
+import com.hmdp.properties.SeckillProperties;
+import com.hmdp.utils.consumer.OrderRetryPublisher;
+import org.springframework.amqp.core.AcknowledgeMode;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
 import org.springframework.amqp.core.DirectExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 public class RabbitMQConfig {
 
@@ -44,16 +54,62 @@ public class RabbitMQConfig {
         return BindingBuilder.bind(orderQueue).to(orderExchange).with("order.create");
     }
 
+    /**
+     * 下单失败的重试拓扑：
+     * 重试交换机按 retry.{n} 路由到第n个延迟队列，消息在其中等待TTL后经死信回到 order.exchange；
+     * 重试用尽后路由到 order.dlq，等待人工处理
+     */
+    @Bean
+    public Declarables orderRetryTopology(SeckillProperties seckillProperties) {
+        List<Declarable> declarables = new ArrayList<>();
+        DirectExchange retryExchange = new DirectExchange(OrderRetryPublisher.RETRY_EXCHANGE);
+        declarables.add(retryExchange);
+        List<Long> delays = seckillProperties.getOrderRetry().getDelays();
+        for (int i = 1; i <= delays.size(); i++) {
+            Queue delayQueue = QueueBuilder.durable("order.retry." + i)
+                    .ttl(delays.get(i - 1).intValue())
+                    .deadLetterExchange("order.exchange")
+                    .deadLetterRoutingKey("order.create")
+                    .build();
+            declarables.add(delayQueue);
+            declarables.add(BindingBuilder.bind(delayQueue).to(retryExchange).with(OrderRetryPublisher.retryRoutingKey(i)));
+        }
+        Queue deadLetterQueue = QueueBuilder.durable(OrderRetryPublisher.DEAD_LETTER_QUEUE).build();
+        declarables.add(deadLetterQueue);
+        declarables.add(BindingBuilder.bind(deadLetterQueue).to(retryExchange).with(OrderRetryPublisher.DEAD_ROUTING_KEY));
+        return new Declarables(declarables);
+    }
+
     @Bean
     public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
-            ConnectionFactory connectionFactory) {
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory) {
         SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
-        factory.setConnectionFactory(connectionFactory);
-        factory.setPrefetchCount(10); // 每次预取10条消息
-        factory.setConcurrentConsumers(5); // 并发消费者数量
+        // 应用 spring.rabbitmq.listener.simple 配置（手动确认、预取数）和JSON消息转换器，监听方法才能收到OrderMessage；
+        // 并发数由监听注解指定，运行时由 AdaptiveOrderController 调整
+        configurer.configure(factory, connectionFactory);
         return factory;
     }
     
+    /**
+     * 批量消费订单的容器工厂，每个消费者最多攒 size 条或等待 receiveTimeout 后交给监听器
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory batchRabbitListenerContainerFactory(
+            ConnectionFactory connectionFactory, SeckillProperties seckillProperties) {
+        SeckillProperties.OrderBatch batch = seckillProperties.getOrderBatch();
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batch.getSize());
+        factory.setReceiveTimeout(batch.getReceiveTimeout());
+        // 预取数不小于批大小，否则凑不满一批
+        factory.setPrefetchCount(batch.getSize());
+        factory.setConcurrentConsumers(batch.getConsumers());
+        return factory;
+    }
+
     /**
      * 配置JSON消息转换器
      * @return
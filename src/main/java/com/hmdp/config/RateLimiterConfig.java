@@ -1,6 +1,7 @@
 package com.hmdp.config;
 
 import com.google.common.util.concurrent.RateLimiter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -8,7 +9,8 @@ import org.springframework.context.annotation.Configuration;
 public class RateLimiterConfig {
 
     @Bean
-    public RateLimiter rateLimiter() {
-        return RateLimiter.create(100.0); // 每秒100个请求
+    public RateLimiter rateLimiter(@Value("${hm.rate-limiter.order-processing:100}") double permitsPerSecond) {
+        // 初始速率，开启自适应调节后运行时调整
+        return RateLimiter.create(permitsPerSecond); // 默认每秒100个请求
     }
 }
@@ -3,7 +3,10 @@ package com.hmdp.controller;
 
 import com.hmdp.dto.Result;
 import com.hmdp.service.impl.VoucherOrderServiceImpl;
+import com.hmdp.utils.UserHolder;
+import com.hmdp.utils.seckill.SeckillRequestGuard;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -27,6 +30,9 @@ public class VoucherOrderController {
     @Resource
     private VoucherOrderServiceImpl voucherOrderService;
 
+    @Resource
+    private SeckillRequestGuard seckillRequestGuard;
+
     /**
      * 秒杀优惠券
      * @param voucherId 优惠券id
@@ -35,6 +41,24 @@ public class VoucherOrderController {
     @PostMapping("seckill/{id}")
     public Result seckillVoucher(@PathVariable("id") Long voucherId) {
         log.info("开始秒杀优惠券");
-        return voucherOrderService.seckillVoucher(voucherId);
+        // 重复点击和超出速率的请求在本地直接返回
+        Long userId = UserHolder.getUser().getId();
+        Result rejected = seckillRequestGuard.check(userId, voucherId);
+        if (rejected != null) {
+            return rejected;
+        }
+        Result result = voucherOrderService.seckillVoucher(voucherId);
+        seckillRequestGuard.record(userId, voucherId, result);
+        return result;
+    }
+
+    /**
+     * 轮询秒杀订单处理状态，只读Redis
+     * @param orderId 秒杀返回的订单id
+     * @return PENDING、SUCCESS 或 FAILED
+     */
+    @GetMapping("status/{orderId}")
+    public Result queryOrderStatus(@PathVariable("orderId") Long orderId) {
+        return voucherOrderService.queryOrderStatus(orderId);
     }
 }
@@ -0,0 +1,26 @@
+package com.hmdp.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 秒杀订单处理状态
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusDTO {
+    /**
+     * 订单id，超出前端安全整数范围，按字符串输出
+     */
+    @JsonSerialize(using = ToStringSerializer.class)
+    private Long orderId;
+    private Long voucherId;
+    /**
+     * PENDING、SUCCESS 或 FAILED
+     */
+    private String status;
+}
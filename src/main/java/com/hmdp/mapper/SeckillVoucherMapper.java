@@ -2,8 +2,11 @@ package com.hmdp.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.hmdp.entity.SeckillVoucher;
+import com.hmdp.utils.seckill.SeckillStockSnapshot;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -22,4 +25,25 @@ public interface SeckillVoucherMapper extends BaseMapper<SeckillVoucher> {
      */
     @Select("select voucher_id from tb_seckill_voucher")
     List<Long> selectAllIds();
+
+    /**
+     * 加锁查询库存，需在事务中调用
+     * @param voucherId 优惠券id
+     * @return 库存，不存在时为null
+     */
+    @Select("select stock from tb_seckill_voucher where voucher_id = #{voucherId} for update")
+    Integer selectStockForUpdate(Long voucherId);
+
+    /**
+     * 按id分页查询未结束的秒杀券库存及已下单数，单条语句保证两者取自同一快照
+     * @param now 当前时间
+     * @param afterId 上一批最后一个优惠券id
+     * @param limit 每批数量
+     */
+    @Select("select sv.voucher_id, sv.stock, sv.begin_time, sv.end_time, " +
+            "(select count(*) from tb_voucher_order vo where vo.voucher_id = sv.voucher_id) as sold " +
+            "from tb_seckill_voucher sv where sv.end_time > #{now} and sv.voucher_id > #{afterId} " +
+            "order by sv.voucher_id limit #{limit}")
+    List<SeckillStockSnapshot> selectActiveStock(@Param("now") LocalDateTime now, @Param("afterId") long afterId,
+                                                 @Param("limit") int limit);
 }
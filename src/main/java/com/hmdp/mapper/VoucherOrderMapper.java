@@ -2,6 +2,10 @@ package com.hmdp.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.hmdp.entity.VoucherOrder;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
 
 /**
  * <p>
@@ -13,4 +17,17 @@ import com.hmdp.entity.VoucherOrder;
  */
 public interface VoucherOrderMapper extends BaseMapper<VoucherOrder> {
 
+    /**
+     * 多行插入订单
+     * @param orders 订单，不能为空
+     * @return 插入行数
+     */
+    int insertBatch(@Param("orders") List<VoucherOrder> orders);
+
+    /**
+     * 查询优惠券的下单用户，用于重建Redis下单用户集合
+     * @param voucherId 优惠券id
+     */
+    @Select("select user_id from tb_voucher_order where voucher_id = #{voucherId}")
+    List<Long> selectUserIds(Long voucherId);
 }
@@ -0,0 +1,173 @@
+package com.hmdp.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+@ConfigurationProperties(prefix = "hm.cache")
+@Data
+public class CacheProperties {
+
+    /**
+     * 各实体的多级缓存配置，key为缓存名称，例如 shop、blog、user
+     */
+    private Map<String, Tier> tiers = new HashMap<>();
+
+    /**
+     * 逻辑过期缓存的序列化方式：smile(二进制) 或 json
+     */
+    private String serializer = "smile";
+
+    /**
+     * 逻辑过期缓存的提前刷新系数(XFetch beta)，0表示只在过期后刷新
+     */
+    private double earlyRefreshBeta = 1.0;
+
+    /**
+     * 跨节点本地缓存失效广播配置
+     */
+    private Invalidation invalidation = new Invalidation();
+
+    /**
+     * 缓存异步重建线程池配置
+     */
+    private Rebuild rebuild = new Rebuild();
+
+    /**
+     * 热点key探测配置
+     */
+    private HotKey hotKey = new HotKey();
+
+    /**
+     * 不存在id的负缓存配置
+     */
+    private Negative negative = new Negative();
+
+    /**
+     * 获取指定缓存的配置，未配置时使用默认值
+     */
+    public Tier tier(String name) {
+        Tier tier = tiers.get(name);
+        return tier != null ? tier : new Tier();
+    }
+
+    @Data
+    public static class Tier {
+        /**
+         * 本地缓存最大条数
+         */
+        private long maximumSize = 500;
+        /**
+         * 本地缓存过期时间(秒)
+         */
+        private long localTtl = 120;
+        /**
+         * 本地空值缓存过期时间(秒)，防止缓存穿透
+         */
+        private long negativeTtl = 30;
+        /**
+         * 是否缓存空值
+         */
+        private boolean cacheNull = true;
+    }
+
+    @Data
+    public static class Invalidation {
+        /**
+         * 是否开启失效广播
+         */
+        private boolean enabled = true;
+        /**
+         * 广播使用的Redis频道
+         */
+        private String channel = "cache:invalidate";
+        /**
+         * 合并发送的时间窗口(毫秒)
+         */
+        private long flushInterval = 50;
+        /**
+         * 单条消息最多携带的id数，积压超过该值时立即发送
+         */
+        private int maxBatchSize = 200;
+    }
+
+    @Data
+    public static class Rebuild {
+        /**
+         * 重建线程数
+         */
+        private int threads = 10;
+        /**
+         * 等待队列容量
+         */
+        private int queueCapacity = 1000;
+        /**
+         * 队列满时的策略：discard 丢弃（继续返回旧数据），caller-runs 由请求线程执行
+         */
+        private String rejectionPolicy = "discard";
+    }
+
+    @Data
+    public static class HotKey {
+        /**
+         * 是否开启热点探测
+         */
+        private boolean enabled = true;
+        /**
+         * 滑动窗口个数
+         */
+        private int windows = 6;
+        /**
+         * 每个窗口的时长(秒)
+         */
+        private int windowSeconds = 10;
+        /**
+         * 整个滑动窗口内访问次数达到该值视为热点
+         */
+        private int threshold = 1000;
+        /**
+         * 最多保留的热点key个数
+         */
+        private int topK = 100;
+        /**
+         * Count-Min Sketch 哈希函数个数
+         */
+        private int sketchDepth = 4;
+        /**
+         * Count-Min Sketch 每行宽度
+         */
+        private int sketchWidth = 4096;
+        /**
+         * 热点数据写入后多久后台刷新(毫秒)
+         */
+        private long refreshAfter = 1000;
+        /**
+         * 热点数据写入后多久过期(毫秒)，应大于refreshAfter
+         */
+        private long expireAfter = 5000;
+    }
+
+    @Data
+    public static class Negative {
+        /**
+         * 是否开启负缓存，关闭后仍按原方式写入空值key
+         */
+        private boolean enabled = true;
+        /**
+         * 不存在记录的存活时间(秒)
+         */
+        private long ttl = 120;
+        /**
+         * 每个key前缀本地最多记录的id数
+         */
+        private int localCapacity = 100000;
+        /**
+         * 支持的最大id，决定Redis bitmap的最大长度(2^26位约8MB)
+         */
+        private long maxId = 1L << 26;
+    }
+}
@@ -22,6 +22,11 @@ public class JwtProperties {
     private long userTtl;
     private String userTokenName;
 
+    /**
+     * 已验签token的本地缓存条数
+     */
+    private long verifiedTokenCacheSize = 10000;
+
     public String getUserSecretKey() {
         return userSecretKey;
     }
@@ -45,4 +50,12 @@ public class JwtProperties {
     public void setUserTokenName(String userTokenName) {
         this.userTokenName = userTokenName;
     }
+
+    public long getVerifiedTokenCacheSize() {
+        return verifiedTokenCacheSize;
+    }
+
+    public void setVerifiedTokenCacheSize(long verifiedTokenCacheSize) {
+        this.verifiedTokenCacheSize = verifiedTokenCacheSize;
+    }
 }
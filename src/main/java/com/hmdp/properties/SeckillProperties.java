@@ -0,0 +1,249 @@
+package com.hmdp.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "hm.seckill")
+@Data
+public class SeckillProperties {
+
+    /**
+     * 新建秒杀券的库存分片数，1表示不分片（沿用 seckill:stock:{id} 单key）
+     * 已创建的秒杀券按创建时记录的分片数处理
+     */
+    private int stockShards = 1;
+
+    /**
+     * 订单投递方式：rabbit（RabbitMQ，可配合发件箱）或 redis-stream（秒杀脚本原子写入Redis Stream）
+     */
+    private String transport = "rabbit";
+
+    /**
+     * 本分片库存为空时，单次从其他分片借调的最大数量
+     */
+    private int borrowBatch = 16;
+
+    /**
+     * 售罄广播使用的Redis频道
+     */
+    private String soldOutChannel = "seckill:sold-out";
+
+    /**
+     * 本地售罄标记最多记录的秒杀券数
+     */
+    private int soldOutCapacity = 4096;
+
+    /**
+     * 订单状态缓存的过期时间(秒)，供客户端轮询秒杀结果
+     */
+    private long orderStatusTtl = 600;
+
+    /**
+     * 订单批量消费配置
+     */
+    private OrderBatch orderBatch = new OrderBatch();
+
+    /**
+     * 订单消费并发与限流的自适应调节配置
+     */
+    private OrderAdaptive orderAdaptive = new OrderAdaptive();
+
+    /**
+     * 下单失败的延迟重试配置
+     */
+    private OrderRetry orderRetry = new OrderRetry();
+
+    /**
+     * 秒杀订单消息的本地发件箱配置
+     */
+    private Outbox outbox = new Outbox();
+
+    /**
+     * Redis Stream 订单投递配置
+     */
+    private OrderStream orderStream = new OrderStream();
+
+    /**
+     * 库存对账与开售预热配置
+     */
+    private Reconcile reconcile = new Reconcile();
+
+    /**
+     * 秒杀接口的本地去重与限流配置
+     */
+    private Guard guard = new Guard();
+
+    @Data
+    public static class OrderBatch {
+        /**
+         * 是否开启批量消费，关闭时逐条消费
+         */
+        private boolean enabled = false;
+        /**
+         * 单批最多消息数
+         */
+        private int size = 100;
+        /**
+         * 凑批最长等待时间(毫秒)
+         */
+        private long receiveTimeout = 50;
+        /**
+         * 批量消费者数量
+         */
+        private int consumers = 5;
+    }
+
+    @Data
+    public static class OrderAdaptive {
+        /**
+         * 是否开启自适应调节，关闭时保持固定配置
+         */
+        private boolean enabled = true;
+        /**
+         * 调节周期(毫秒)
+         */
+        private long interval = 5000;
+        /**
+         * 下单事务耗时p99目标(毫秒)，超过时乘性减小
+         */
+        private long targetP99 = 200;
+        /**
+         * 队列积压超过该值且耗时正常时加性增大
+         */
+        private long backlogThreshold = 1000;
+        private int minConcurrency = 1;
+        private int maxConcurrency = 20;
+        private int maxPrefetch = 250;
+        /**
+         * 每秒处理速率(批量消费时为每秒批数)的上下限
+         */
+        private double minRate = 10;
+        private double maxRate = 2000;
+        /**
+         * 每次加性增大的速率
+         */
+        private double increaseStep = 20;
+        /**
+         * 乘性减小系数
+         */
+        private double decreaseFactor = 0.7;
+    }
+
+    @Data
+    public static class OrderRetry {
+        /**
+         * 每次重试前的延迟(毫秒)，个数即最大重试次数，用尽后进入死信队列
+         */
+        private List<Long> delays = new ArrayList<>(Arrays.asList(1000L, 5000L, 30000L));
+        /**
+         * 投递重试或死信消息后等待发布确认的时长(毫秒)，超时视为投递失败，原消息重新入队
+         */
+        private long confirmTimeout = 5000;
+    }
+
+    @Data
+    public static class Outbox {
+        /**
+         * 是否开启发件箱，关闭时请求线程直接发送到RabbitMQ
+         */
+        private boolean enabled = true;
+        /**
+         * 发件箱使用的Redis Stream
+         */
+        private String stream = "seckill:outbox";
+        /**
+         * 转发线程每次读取的最大条数
+         */
+        private int batchSize = 100;
+        /**
+         * 无新消息时阻塞等待的时长(毫秒)
+         */
+        private long block = 1000;
+        /**
+         * 已发送但超过该时长(毫秒)仍未确认的消息重新发送
+         */
+        private long claimIdle = 10000;
+    }
+
+    @Data
+    public static class OrderStream {
+        /**
+         * 订单流key
+         */
+        private String key = "stream.orders";
+        /**
+         * 消费组名称
+         */
+        private String group = "order-consumers";
+        /**
+         * 本节点消费线程数
+         */
+        private int consumers = 2;
+        /**
+         * 单次读取的最大条数
+         */
+        private int batchSize = 100;
+        /**
+         * 无新消息时阻塞等待的时长(毫秒)
+         */
+        private long block = 2000;
+        /**
+         * 待确认超过该时长(毫秒)的订单被重新认领处理
+         */
+        private long claimIdle = 30000;
+        /**
+         * 最大投递次数，超过后转入死信流并恢复库存
+         */
+        private int maxDeliveries = 4;
+        /**
+         * 死信流key
+         */
+        private String deadLetterKey = "stream.orders.dlq";
+    }
+
+    @Data
+    public static class Reconcile {
+        /**
+         * 是否开启定时对账
+         */
+        private boolean enabled = true;
+        /**
+         * 对账周期(毫秒)
+         */
+        private long interval = 60000;
+        /**
+         * 每批对账的秒杀券数
+         */
+        private int batchSize = 100;
+        /**
+         * 开售前多久(毫秒)预热库存、脚本和秒杀券缓存
+         */
+        private long preloadAhead = 300000;
+    }
+
+    @Data
+    public static class Guard {
+        /**
+         * 是否开启本地去重与限流
+         */
+        private boolean enabled = true;
+        /**
+         * 用户对同一秒杀券的下单结果在本地保留的时长(秒)，期间重复点击直接返回
+         */
+        private long attemptTtl = 10;
+        /**
+         * 每个用户每秒允许的秒杀请求数
+         */
+        private double userRate = 2.0;
+        /**
+         * 本地最多跟踪的用户数
+         */
+        private long maxUsers = 100000;
+    }
+}
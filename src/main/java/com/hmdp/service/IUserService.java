@@ -3,9 +3,12 @@ package com.hmdp.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.hmdp.dto.LoginFormDTO;
 import com.hmdp.dto.Result;
+import com.hmdp.dto.UserDTO;
 import com.hmdp.entity.User;
 
 import javax.servlet.http.HttpSession;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * <p>
@@ -44,4 +47,11 @@ public interface IUserService extends IService<User> {
      * @return 结果
      */
     Result signCount();
+
+    /**
+     * 批量查询用户简要信息（走缓存）
+     * @param ids 用户id
+     * @return 按入参顺序排列的用户信息，不存在的用户不包含在结果中
+     */
+    List<UserDTO> queryUsersByIds(Collection<Long> ids);
 }
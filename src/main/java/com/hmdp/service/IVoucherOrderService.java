@@ -4,6 +4,9 @@ import com.baomidou.mybatisplus.extension.service.IService;
 import com.hmdp.dto.Result;
 import com.hmdp.entity.VoucherOrder;
 
+import java.util.Map;
+import java.util.Set;
+
 /**
  * <p>
  *  服务类
@@ -21,10 +24,28 @@ public interface IVoucherOrderService extends IService<VoucherOrder> {
      */
     Result seckillVoucher(Long voucherId);
 
+    /**
+     * 查询秒杀订单处理状态
+     * @param orderId 秒杀时返回的订单id
+     * @return 订单状态
+     */
+    Result queryOrderStatus(Long orderId);
+
     /**
      * 创建订单
      *
+     * @param orderId 预先生成的订单id，为null时重新生成
+     * @param voucherId 优惠券id
+     * @return 用户是否已持有该优惠券的订单（本次创建或此前已创建）
+     */
+    boolean createVoucherOrder(Long orderId, Long userId, Long voucherId);
+
+    /**
+     * 批量创建同一优惠券的订单：一次查询去重、一次扣减库存、一次多行插入
+     *
      * @param voucherId 优惠券id
+     * @param orders 下单用户id -> 预先生成的订单id（为null时重新生成）
+     * @return 已持有该优惠券订单的用户id（本次创建或此前已创建），库存不足的用户不在其中
      */
-    void createVoucherOrder(Long userId, Long voucherId);
+    Set<Long> createVoucherOrders(Long voucherId, Map<Long, Long> orders);
 }
@@ -1,5 +1,6 @@
 package com.hmdp.service.impl;
 
+import cn.hutool.core.bean.BeanUtil;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.hmdp.dto.Result;
@@ -7,11 +8,13 @@ import com.hmdp.dto.ScrollResult;
 import com.hmdp.dto.UserDTO;
 import com.hmdp.entity.Blog;
 import com.hmdp.entity.Follow;
-import com.hmdp.entity.User;
 import com.hmdp.mapper.BlogMapper;
 import com.hmdp.service.IBlogService;
 import com.hmdp.service.IFollowService;
 import com.hmdp.service.IUserService;
+import com.hmdp.utils.CacheStorageStrategy;
+import com.hmdp.utils.cache.TieredCache;
+import com.hmdp.utils.cache.TieredCacheManager;
 import com.hmdp.utils.constans.SystemConstants;
 import com.hmdp.utils.UserHolder;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,13 +22,19 @@ import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static com.hmdp.utils.constans.RedisConstants.BLOG_LIKED_KEY;
+import static com.hmdp.utils.constans.RedisConstants.CACHE_BLOG_KEY;
+import static com.hmdp.utils.constans.RedisConstants.CACHE_BLOG_TTL;
 import static com.hmdp.utils.constans.RedisConstants.FEED_KEY;
 
 /**
@@ -47,6 +56,24 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IB
     @Resource
     private StringRedisTemplate stringRedisTemplate;
 
+    @Resource
+    private TieredCacheManager tieredCacheManager;
+
+    /**
+     * 博客多级缓存，缓存的是数据库中的博客，作者信息和点赞状态在读取后填充
+     */
+    private TieredCache<Long, Blog> blogCache;
+
+    @PostConstruct
+    public void initBlogCache() {
+        blogCache = tieredCacheManager.<Long, Blog>newCache("blog")
+                .keyPrefix(CACHE_BLOG_KEY)
+                .redisTtl(CACHE_BLOG_TTL, TimeUnit.MINUTES)
+                .redis(Blog.class, CacheStorageStrategy.STRING, false)
+                .dbFallback(this::getById)
+                .build();
+    }
+
     /**
      * 发表博客
      *
@@ -61,8 +88,8 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IB
                 .page(new Page<>(current, SystemConstants.MAX_PAGE_SIZE));
         // 获取当前页数据
         List<Blog> records = page.getRecords();
-        // 查询用户
-        records.forEach(this::queryByUserId);
+        // 批量查询用户
+        queryBlogUsers(records);
         return Result.ok(records);
     }
 
@@ -75,23 +102,37 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IB
     @Override
     public Result queryBlogById(Long id) {
         // 查询blog
-        Blog blog = getById(id); // 直接使用 this.getById()
-        if (blog == null) {
+        Blog cached = blogCache.get(id);
+        if (cached == null) {
             return Result.fail("博客不存在");
         }
+        // 缓存中的对象是共享的，复制后再填充用户相关字段
+        Blog blog = BeanUtil.copyProperties(cached, Blog.class);
         // 查询用户
-        queryByUserId(blog);
+        queryBlogUsers(Collections.singletonList(blog));
         // 查询当前用户是否点赞
         isBlogLiked(blog);
         // 返回
         return Result.ok(blog);
     }
 
-    private void queryByUserId(Blog blog) {
-        Long userId = blog.getUserId();
-        User user = userService.getById(userId);
-        blog.setName(user.getNickName());
-        blog.setIcon(user.getIcon());
+    /**
+     * 批量填充博客作者信息，一次缓存批量查询代替逐条查询
+     */
+    private void queryBlogUsers(List<Blog> blogs) {
+        if (blogs == null || blogs.isEmpty()) {
+            return;
+        }
+        List<Long> userIds = blogs.stream().map(Blog::getUserId).distinct().collect(Collectors.toList());
+        Map<Long, UserDTO> users = userService.queryUsersByIds(userIds).stream()
+                .collect(Collectors.toMap(UserDTO::getId, user -> user));
+        for (Blog blog : blogs) {
+            UserDTO user = users.get(blog.getUserId());
+            if (user != null) {
+                blog.setName(user.getNickName());
+                blog.setIcon(user.getIcon());
+            }
+        }
     }
 
     /**
@@ -109,6 +150,7 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IB
             stringRedisTemplate.opsForZSet().remove(BLOG_LIKED_KEY + id, UserHolder.getUser().getId().toString());
             // 数据库like数-1
             update().setSql("liked = liked - 1").eq("id", id).update();
+            blogCache.invalidate(id);
             return;
         }
         // 3. 未点赞，点赞
@@ -128,6 +170,7 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IB
         Long count = stringRedisTemplate.opsForZSet().zCard(BLOG_LIKED_KEY + id);
         // 更新数据库
         update().setSql("liked = " + count).eq("id", id).update();
+        blogCache.invalidate(id);
     }
 
     /**
@@ -158,10 +201,9 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IB
             return Result.ok();
         }
 
-        // 根据用户ID查询用户信息
-        List<User> users = userIds.stream().map(userId -> {
-            return userService.getById(Long.valueOf(userId));
-        }).collect(Collectors.toList());
+        // 根据用户ID批量查询用户信息
+        List<Long> ids = userIds.stream().map(Long::valueOf).collect(Collectors.toList());
+        List<UserDTO> users = userService.queryUsersByIds(ids);
 
         return Result.ok(users);
     }
@@ -176,8 +218,8 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IB
                 .eq("user_id", id).page(new Page<>(current, SystemConstants.MAX_PAGE_SIZE));
         // 获取当前页数据
         List<Blog> records = page.getRecords();
-        // 查询用户
-        records.forEach(this::queryByUserId);
+        // 批量查询用户
+        queryBlogUsers(records);
         return Result.ok(records, page.getTotal());
     }
 
@@ -197,6 +239,7 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IB
         if (!isSuccess) {
             return Result.fail("保存失败");
         }
+        blogCache.invalidate(blog.getId());
         // 3. 查询笔记作者的所有粉丝
         List<Follow> follows = followService.query().eq("follow_user_id", user.getId()).list();
         // 4. 把博文发送给粉丝
@@ -1,7 +1,5 @@
 package com.hmdp.service.impl;
 
-import cn.hutool.core.date.DatePattern;
-import cn.hutool.json.JSONUtil;
 import com.alibaba.fastjson2.JSON;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.github.benmanes.caffeine.cache.Cache;
@@ -12,7 +10,10 @@ import com.hmdp.mapper.ShopMapper;
 import com.hmdp.service.IShopService;
 import com.hmdp.utils.CacheClient;
 import com.hmdp.utils.CacheStorageStrategy;
+import com.hmdp.utils.cache.TieredCache;
+import com.hmdp.utils.cache.TieredCacheManager;
 import com.hmdp.utils.es.ShopDocument;
+import com.hmdp.utils.es.ShopHitMapper;
 import com.hmdp.utils.es.ShopSyncService;
 import lombok.extern.slf4j.Slf4j;
 import org.elasticsearch.action.index.IndexRequest;
@@ -23,7 +24,6 @@ import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.common.unit.DistanceUnit;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
-import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.sort.SortBuilders;
 import org.elasticsearch.search.sort.SortOrder;
@@ -36,15 +36,10 @@ import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import java.io.IOException;
-import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import static com.hmdp.utils.constans.RedisConstants.*;
@@ -88,7 +83,25 @@ public class ShopServiceImpl extends ServiceImpl<ShopMapper, Shop> implements IS
     @Resource
     private Cache<String, Object> caffeineCache;
 
-    private static final ExecutorService CACHE_REBUILD_EXECUTOR = Executors.newFixedThreadPool(10);
+    @Resource
+    private TieredCacheManager tieredCacheManager;
+
+    /**
+     * 商铺多级缓存，L1沿用 localCacheManager，与canal同步使用同一份本地缓存
+     */
+    private TieredCache<Long, Shop> shopCache;
+
+    @PostConstruct
+    public void initShopCache() {
+        shopCache = tieredCacheManager.<Long, Shop>newCache("shop")
+                .keyPrefix(CACHE_SHOP_KEY)
+                .localCache(caffeineCache)
+                .redisTtl(CACHE_SHOP_TTL, TimeUnit.MINUTES)
+                .redis(Shop.class, CacheStorageStrategy.HASH, true)
+                .dbFallback(this::getById)
+                .build();
+    }
+
     /**
      * 根据id查询商铺信息
      * @param id 商铺id
@@ -104,34 +117,11 @@ public class ShopServiceImpl extends ServiceImpl<ShopMapper, Shop> implements IS
             return Result.fail("店铺不存在");
         }
 
-        // 从caffeine缓存中获取数据
-        Shop cafeshop = (Shop) caffeineCache.getIfPresent(CACHE_SHOP_KEY + id);
-        if (cafeshop != null) {
-            // 检查是否是空值标记
-            if (cafeshop.getId() == null) {
-                return Result.fail("店铺不存在");
-            }
-            
-            log.debug("从caffeine缓存中获取数据");
-            return Result.ok(cafeshop);
-        }
-
-        // 逻辑过期解决缓存击穿
-        Shop shop = cacheClient
-                .queryWithLogicalExpire(CACHE_SHOP_KEY, id, Shop.class, this::getById, CACHE_SHOP_TTL, TimeUnit.MINUTES, CacheStorageStrategy.HASH);
-
-        // 如果缓存中没有数据，直接查询数据库
-        if (shop == null){
-            shop = this.getById(id);
-            if (shop == null) {
-                // 将空值也缓存到Caffeine中，防止缓存穿透
-                caffeineCache.put(CACHE_SHOP_KEY + id, new Shop());
-                return Result.fail("店铺不存在");
-            }
+        // 多级缓存：caffeine -> redis(逻辑过期解决缓存击穿) -> 数据库
+        Shop shop = shopCache.get(id);
+        if (shop == null) {
+            return Result.fail("店铺不存在");
         }
-
-        //缓存数据到caffeine
-        caffeineCache.put(CACHE_SHOP_KEY + id, shop);
         return Result.ok(shop);
     }
 
@@ -323,33 +313,18 @@ public class ShopServiceImpl extends ServiceImpl<ShopMapper, Shop> implements IS
      */
     @Override
     public void saveShop2Redis(Long id, long expireSeconds) {
-        // 1. 查询店铺数据
+        // 1. 查询店铺数据，记录耗时用于提前刷新
+        long start = System.currentTimeMillis();
         Shop shop = getById(id);
         if (shop == null) {
             return;
         }
 
-        // 2. 按照CacheClient期望的格式创建数据结构
-        Map<String, String> cacheData = new HashMap<>();
-        cacheData.put("expireTime", LocalDateTime.now().plusSeconds(expireSeconds).format(DatePattern.NORM_DATETIME_FORMATTER));
-
-        // 3. 将shop对象转换为JSON字符串并放入data字段
-        String shopJson = JSONUtil.toJsonStr(shop);
-        cacheData.put("data", shopJson);
-
-        // 4. 保存到Redis
+        // 2. 按照CacheClient的逻辑过期格式写入Redis
         String key = CACHE_SHOP_KEY + id;
-        stringRedisTemplate.delete(key);
-        stringRedisTemplate.opsForHash().putAll(key, cacheData);
-        
-        // 5. 设置过期时间，使用expireSeconds参数转换为分钟
-        long expireMinutes = expireSeconds / 60;
-        if (expireSeconds % 60 > 0) {
-            expireMinutes++; // 如果有余数，向上取整
-        }
-        stringRedisTemplate.expire(key, expireMinutes, TimeUnit.MINUTES);
-        
-        log.info("店铺数据已写入Redis，key: {}, 过期时间: {}分钟", key, expireMinutes);
+        cacheClient.setWithLogicalExpire(key, shop, expireSeconds, TimeUnit.SECONDS, System.currentTimeMillis() - start);
+
+        log.info("店铺数据已写入Redis，key: {}, 逻辑过期时间: {}秒", key, expireSeconds);
     }
 
     /**
@@ -402,88 +377,9 @@ public class ShopServiceImpl extends ServiceImpl<ShopMapper, Shop> implements IS
         request.source(builder);
         SearchResponse response = esClient.search(request, RequestOptions.DEFAULT);
 
-// 4. 解析结果
-        List<ShopVO> shops = new ArrayList<>();
-        for (SearchHit hit : response.getHits()) {
-            // 获取源数据
-            Map<String, Object> sourceMap = hit.getSourceAsMap();
-            ShopVO shop = new ShopVO();
-
-            // 手动映射字段，确保数据正确转换
-            shop.setId(getLongValue(sourceMap, "id"));
-            shop.setName(getStringValue(sourceMap, "name"));
-            shop.setTypeId(getLongValue(sourceMap, "typeId"));
-            shop.setImages(getStringValue(sourceMap, "images"));
-            shop.setArea(getStringValue(sourceMap, "area"));
-            shop.setAddress(getStringValue(sourceMap, "address"));
-
-            // 从location字段解析经纬度
-            String location = getStringValue(sourceMap, "location");
-            if (location != null && !location.isEmpty()) {
-                String[] coords = location.split(",");
-                if (coords.length == 2) {
-                    try {
-                        shop.setX(Double.parseDouble(coords[1])); // 经度
-                        shop.setY(Double.parseDouble(coords[0])); // 纬度
-                    } catch (NumberFormatException e) {
-                        log.warn("解析经纬度失败: {}", location);
-                    }
-                }
-            }
-
-            shop.setAvgPrice(getLongValue(sourceMap, "avgPrice"));
-            shop.setSold(getIntegerValue(sourceMap, "sold"));
-            shop.setComments(getIntegerValue(sourceMap, "comments"));
-            shop.setScore(getIntegerValue(sourceMap, "score"));
-            shop.setOpenHours(getStringValue(sourceMap, "openHours"));
-
-            // 如果是距离排序，取出距离信息
-            if (hit.getSortValues().length > 0 && "distance".equals(sort)) {
-                shop.setDistance((double) hit.getSortValues()[0]);
-            }
-            shops.add(shop);
-        }
-
+        // 4. 解析结果
+        List<ShopVO> shops = ShopHitMapper.toShopVOs(response.getHits(), "distance".equals(sort));
         return Result.ok(shops);
 
     }
-
-    // 辅助方法：安全获取Long值
-    private Long getLongValue(Map<String, Object> map, String key) {
-        Object value = map.get(key);
-        if (value == null) {
-            return null;
-        }
-        if (value instanceof Number) {
-            return ((Number) value).longValue();
-        }
-        try {
-            return Long.parseLong(value.toString());
-        } catch (NumberFormatException e) {
-            return null;
-        }
-    }
-
-    // 辅助方法：安全获取Integer值
-    private Integer getIntegerValue(Map<String, Object> map, String key) {
-        Object value = map.get(key);
-        if (value == null) {
-            return null;
-        }
-        if (value instanceof Number) {
-            return ((Number) value).intValue();
-        }
-        try {
-            return Integer.parseInt(value.toString());
-        } catch (NumberFormatException e) {
-            return null;
-        }
-    }
-
-    // 辅助方法：安全获取String值
-    private String getStringValue(Map<String, Object> map, String key) {
-        Object value = map.get(key);
-        return value != null ? value.toString() : null;
-    }
-
-}
\ No newline at end of file
+}
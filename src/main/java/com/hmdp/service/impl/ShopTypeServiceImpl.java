@@ -3,11 +3,14 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.hmdp.entity.ShopType;
 import com.hmdp.mapper.ShopTypeMapper;
 import com.hmdp.service.IShopTypeService;
+import com.hmdp.utils.cache.TieredCache;
+import com.hmdp.utils.cache.TieredCacheManager;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import cn.hutool.json.JSONUtil;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import java.time.Duration;
 import java.util.Collections;
@@ -31,12 +34,37 @@ public class ShopTypeServiceImpl extends ServiceImpl<ShopTypeMapper, ShopType> i
     @Resource
     private StringRedisTemplate stringRedisTemplate;
 
+    @Resource
+    private TieredCacheManager tieredCacheManager;
+
+    /**
+     * 商铺类型列表本地缓存，未命中时走原有的Redis+数据库查询
+     */
+    private TieredCache<String, List<ShopType>> shopTypeCache;
+
+    private static final String ALL_TYPES = "all";
+
+    @PostConstruct
+    public void initShopTypeCache() {
+        shopTypeCache = tieredCacheManager.<String, List<ShopType>>newCache("shop-type")
+                .keyPrefix(CACHE_SHOP_TYPE_KEY)
+                .loader(id -> loadTypeList())
+                .build();
+    }
+
     /**
      * 查询商铺类型列表
      * @return 商铺类型列表
      */
     @Override
     public List<ShopType> queryTypeList() {
+        return shopTypeCache.get(ALL_TYPES);
+    }
+
+    /**
+     * 从Redis或数据库查询商铺类型列表
+     */
+    private List<ShopType> loadTypeList() {
         String key = CACHE_SHOP_TYPE_KEY;
 
         String shopTypeJson = stringRedisTemplate.opsForValue().get(key);
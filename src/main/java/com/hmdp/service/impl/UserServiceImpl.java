@@ -1,7 +1,6 @@
 package com.hmdp.service.impl;
 
 import cn.hutool.core.bean.BeanUtil;
-import cn.hutool.core.bean.copier.CopyOptions;
 import cn.hutool.core.util.RandomUtil;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.hmdp.dto.LoginFormDTO;
@@ -11,6 +10,10 @@ import com.hmdp.entity.User;
 import com.hmdp.mapper.UserMapper;
 import com.hmdp.properties.JwtProperties;
 import com.hmdp.service.IUserService;
+import com.hmdp.utils.CacheStorageStrategy;
+import com.hmdp.utils.cache.HashCodec;
+import com.hmdp.utils.cache.TieredCache;
+import com.hmdp.utils.cache.TieredCacheManager;
 import com.hmdp.utils.jwt.JwtClaimsConstant;
 import com.hmdp.utils.jwt.JwtUtil;
 import com.hmdp.utils.RegexUtils;
@@ -22,10 +25,15 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import javax.servlet.http.HttpSession;
+import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -58,6 +66,25 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
     @Resource
     private StringRedisTemplate stringRedisTemplate;
 
+    @Resource
+    private TieredCacheManager tieredCacheManager;
+
+    /**
+     * 用户简要信息多级缓存
+     */
+    private TieredCache<Long, UserDTO> userCache;
+
+    @PostConstruct
+    public void initUserCache() {
+        userCache = tieredCacheManager.<Long, UserDTO>newCache("user")
+                .keyPrefix(CACHE_USER_KEY)
+                .redisTtl(CACHE_USER_TTL, TimeUnit.MINUTES)
+                .redis(UserDTO.class, CacheStorageStrategy.HASH, false)
+                .dbFallback(id -> loadUserDTOs(Collections.singletonList(id)).get(id))
+                .batchFallback(this::loadUserDTOs)
+                .build();
+    }
+
     /**
      * 发送手机验证码
      * @param phone 手机号
@@ -143,10 +170,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         BeanUtil.copyProperties(user, userDTO);
 
         //将user对象转为HashMap
-        Map<String, Object> userMap = BeanUtil.beanToMap(userDTO, new HashMap<>(),
-                CopyOptions.create()
-                        .setIgnoreNullValue(true)
-                        .setFieldValueEditor((fieldName, fieldValue) -> fieldValue.toString()));
+        Map<String, String> userMap = HashCodec.of(UserDTO.class).encode(userDTO);
 
        //存储
         String tokenKey = LOGIN_USER_KEY + userDTO.getId();
@@ -171,9 +195,32 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         user.setNickName(USER_NICK_NAME_PREFIX + RandomUtil.randomString(10));
         // 保存用户到数据库
         userMapper.insert(user);
+        // 清除此前对该id记录的空值
+        userCache.invalidate(user.getId());
         return user;
     }
 
+    /**
+     * 更新用户后失效多级缓存，其他节点通过失效广播同步
+     */
+    @Override
+    public boolean updateById(User user) {
+        boolean updated = super.updateById(user);
+        if (updated) {
+            userCache.invalidate(user.getId());
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean removed = super.removeById(id);
+        if (removed) {
+            userCache.invalidate(Long.valueOf(id.toString()));
+        }
+        return removed;
+    }
+
     /**
      * 签到
      * @return 结果
@@ -232,4 +279,25 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         // 4. 统计连续签到次数
         return Result.ok(count);
     }
-}
\ No newline at end of file
+
+    /**
+     * 批量查询用户简要信息
+     * @param ids 用户id
+     * @return 用户信息
+     */
+    @Override
+    public List<UserDTO> queryUsersByIds(Collection<Long> ids) {
+        return new ArrayList<>(userCache.getAll(ids).values());
+    }
+
+    /**
+     * 一次IN查询加载未命中的用户
+     */
+    private Map<Long, UserDTO> loadUserDTOs(Collection<Long> ids) {
+        Map<Long, UserDTO> users = new HashMap<>();
+        for (User user : listByIds(ids)) {
+            users.put(user.getId(), BeanUtil.copyProperties(user, UserDTO.class));
+        }
+        return users;
+    }
+}
@@ -2,6 +2,7 @@ package com.hmdp.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.hmdp.dto.OrderStatusDTO;
 import com.hmdp.dto.Result;
 import com.hmdp.entity.SeckillVoucher;
 import com.hmdp.entity.VoucherOrder;
@@ -9,30 +10,44 @@ import com.hmdp.mapper.SeckillVoucherMapper;
 import com.hmdp.mapper.VoucherOrderMapper;
 import com.hmdp.service.ISeckillVoucherService;
 import com.hmdp.service.IVoucherOrderService;
+import com.hmdp.utils.CacheStorageStrategy;
+import com.hmdp.utils.cache.TieredCache;
+import com.hmdp.utils.cache.TieredCacheManager;
 import com.hmdp.utils.message.OrderMessage;
+import com.hmdp.utils.message.OrderTransport;
 import com.hmdp.utils.RedisIdWorker;
 import com.hmdp.utils.UserHolder;
+import com.hmdp.utils.seckill.OrderStatusCache;
+import com.hmdp.utils.seckill.SeckillRequestGuard;
+import com.hmdp.utils.seckill.SeckillStockRouter;
+import com.hmdp.utils.seckill.SoldOutRegistry;
 import org.redisson.api.RedissonClient;
-import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.util.concurrent.ListenableFutureCallback;
+
+import static com.hmdp.utils.constans.RedisConstants.CACHE_SECKILL_VOUCHER_KEY;
+import static com.hmdp.utils.constans.RedisConstants.CACHE_SECKILL_VOUCHER_TTL;
 
 /**
  * <p>
@@ -65,6 +80,36 @@ public class VoucherOrderServiceImpl extends ServiceImpl<VoucherOrderMapper, Vou
     @Autowired
     private SeckillVoucherMapper seckillVoucherMapper;
 
+    @Resource
+    private TieredCacheManager tieredCacheManager;
+
+    @Resource
+    private SeckillStockRouter seckillStockRouter;
+
+    @Resource
+    private SoldOutRegistry soldOutRegistry;
+
+    @Resource
+    private OrderTransport orderTransport;
+
+    @Resource
+    private OrderStatusCache orderStatusCache;
+
+    /**
+     * 秒杀券多级缓存，仅用于秒杀时间校验，库存以Redis和数据库为准
+     */
+    private TieredCache<Long, SeckillVoucher> seckillVoucherCache;
+
+    @PostConstruct
+    public void initSeckillVoucherCache() {
+        seckillVoucherCache = tieredCacheManager.<Long, SeckillVoucher>newCache("seckill-voucher")
+                .keyPrefix(CACHE_SECKILL_VOUCHER_KEY)
+                .redisTtl(CACHE_SECKILL_VOUCHER_TTL, TimeUnit.MINUTES)
+                .redis(SeckillVoucher.class, CacheStorageStrategy.STRING, false)
+                .dbFallback(seckillVoucherService::getById)
+                .build();
+    }
+
 
     //创建阻塞队列
     private BlockingQueue<VoucherOrder> orderTasks = new ArrayBlockingQueue<>(1024*1024);
@@ -93,14 +138,6 @@ public class VoucherOrderServiceImpl extends ServiceImpl<VoucherOrderMapper, Vou
 
 
 
-    private static final DefaultRedisScript<Long> SECKILL_SCRIPT;
-    static {
-        SECKILL_SCRIPT = new DefaultRedisScript<>();
-        SECKILL_SCRIPT.setLocation(new ClassPathResource("seckill.lua"));
-        SECKILL_SCRIPT.setResultType(Long.class);
-    }
-
-
     /**
      * 秒杀优惠券
      * @param voucherId 优惠券id
@@ -108,8 +145,12 @@ public class VoucherOrderServiceImpl extends ServiceImpl<VoucherOrderMapper, Vou
      */
     @Override
     public Result seckillVoucher(Long voucherId) {
+        // 0. 本节点已知售罄，直接拒绝
+        if (soldOutRegistry.isSoldOut(voucherId)) {
+            return Result.fail("库存不足");
+        }
         // 1. 查优惠券是否存在
-        SeckillVoucher voucher = seckillVoucherService.getById(voucherId);
+        SeckillVoucher voucher = seckillVoucherCache.get(voucherId);
         // 2. 判断优惠券是否存在
         if(voucher == null){
             return Result.fail("优惠券不存在");
@@ -124,49 +165,55 @@ public class VoucherOrderServiceImpl extends ServiceImpl<VoucherOrderMapper, Vou
             return Result.fail("来晚啦秒杀时间已结束！");
         }
 
-        // 1. 执行lua脚本
-        Long result = stringRedisTemplate.execute(SECKILL_SCRIPT,
-                Collections.emptyList(),
-                voucherId.toString(), UserHolder.getUser().getId().toString());
-        int r = result.intValue();
+        // 1. 订单在脚本中原子写入（Redis Stream或发件箱投递）时需预先生成订单id，否则扣减成功后再生成，
+        // 避免售罄和重复下单的请求白白消耗id
+        Long userId = UserHolder.getUser().getId();
+        String streamKey = orderTransport.streamKey();
+        Long orderId = streamKey == null ? null : redisIdWorker.nextId("order");
+        // 执行lua脚本，库存分片时路由到用户所在分片
+        int r = (int) seckillStockRouter.trySeckill(voucherId, userId, orderId, streamKey);
         // 2. 判断是否为 0
         if(r != 0){
             switch (r){
                 case 1:
+                    // 标记售罄并广播，后续请求在内存中拒绝
+                    soldOutRegistry.markSoldOut(voucherId);
                     return Result.fail("库存不足");
                 case 2:
-                    return Result.fail("不能重复下单");
+                    return Result.fail(SeckillRequestGuard.DUPLICATE_ORDER_MSG);
             }
         }
 
-        // 校验通过->发送消息到rabbitMQ
-        OrderMessage message = new OrderMessage(UserHolder.getUser().getId(), voucherId);
-
-        // 生产者发送消息-交换机 确认收到消息
-        // 1. 创建correlationData
-        CorrelationData correlationData = new CorrelationData();
-        // 2. 给future添加confirmCallback
-        correlationData.getFuture().addCallback(new ListenableFutureCallback<CorrelationData.Confirm>() {
-            @Override
-            public void onFailure(Throwable ex) {
-                log.error("消息发送失败", ex);
-            }
-
-            @Override
-            public void onSuccess(CorrelationData.Confirm result) {
-                // 3.1 确认消息成功则添加到阻塞队列
-                if(result.isAck()){
-                    log.debug("消息发送成功");
-                }else{
-                    log.error("消息发送失败");
-                }
-            }
-        });
+        // 校验通过->生成订单id，客户端凭它轮询结果；记录待处理状态，投递订单消息
+        if (orderId == null) {
+            orderId = redisIdWorker.nextId("order");
+        }
+        orderStatusCache.markPending(orderId, userId, voucherId);
+        orderTransport.send(new OrderMessage(userId, voucherId, orderId));
 
-        rabbitTemplate.convertAndSend("order.exchange", "order.create", message);
+        // 3. 立即返回订单id（异步下单），超出前端安全整数范围，按字符串返回
+        return Result.ok(String.valueOf(orderId));
+    }
 
-        // 3. 立即返回成功（异步下单）
-        return Result.ok("刷新查看订单");
+    @Override
+    public Result queryOrderStatus(Long orderId) {
+        Long userId = UserHolder.getUser().getId();
+        Map<Object, Object> entry = orderStatusCache.get(orderId);
+        Object owner = entry.get(OrderStatusCache.FIELD_USER_ID);
+        if (owner != null) {
+            if (!userId.toString().equals(owner)) {
+                return Result.fail("订单不存在");
+            }
+            return Result.ok(new OrderStatusDTO(orderId,
+                    Long.valueOf(entry.get(OrderStatusCache.FIELD_VOUCHER_ID).toString()),
+                    String.valueOf(entry.get(OrderStatusCache.FIELD_STATUS))));
+        }
+        // 状态已过期，按主键查询订单
+        VoucherOrder order = getById(orderId);
+        if (order == null || !userId.equals(order.getUserId())) {
+            return Result.fail("订单不存在");
+        }
+        return Result.ok(new OrderStatusDTO(orderId, order.getVoucherId(), OrderStatusCache.Status.SUCCESS.name()));
     }
 //    @Override
 //    public Result seckillVoucher(Long voucherId) {
@@ -261,19 +308,13 @@ public class VoucherOrderServiceImpl extends ServiceImpl<VoucherOrderMapper, Vou
      */
     @Override
     @Transactional
-    public void createVoucherOrder(Long userId, Long voucherId) {
-        // 再做一次券有效性检查
-        SeckillVoucher voucher = seckillVoucherService.getById(voucherId);
-        if (voucher == null || voucher.getStock() <= 0) {
-            throw new RuntimeException("秒杀券已失效或无库存");
-        }
-        
+    public boolean createVoucherOrder(Long orderId, Long userId, Long voucherId) {
         // 再做一次幂等性检查（双保险）
         long count = this.count(new QueryWrapper<VoucherOrder>()
                 .eq("user_id", userId).eq("voucher_id", voucherId));
         if (count > 0) {
             log.warn("用户{}已下单，跳过重复下单: userId={}, voucherId={}", userId, userId, voucherId);
-            return; // 返回而不抛出异常
+            return true; // 返回而不抛出异常
         }
 
         // 扣减库存
@@ -284,18 +325,76 @@ public class VoucherOrderServiceImpl extends ServiceImpl<VoucherOrderMapper, Vou
                 .update();
         
         if (!success) {
-            log.error("更新秒杀券{}库存失败，可能库存不足", voucherId);
-            throw new RuntimeException("库存不足");
+            // 数据库库存已耗尽（或秒杀券已删除），重试也无法成功，由调用方按终态失败补偿
+            log.warn("更新秒杀券{}库存失败，库存不足，跳过下单: userId={}", voucherId, userId);
+            return false;
         }
 
         // 保存订单
         VoucherOrder order = new VoucherOrder();
-        order.setId(redisIdWorker.nextId("order"));
+        order.setId(orderId != null ? orderId : redisIdWorker.nextId("order"));
         order.setUserId(userId);
         order.setVoucherId(voucherId);
         order.setCreateTime(LocalDateTime.now());
         this.save(order);
         log.info("订单创建成功，订单ID: {}, 用户ID: {}, 优惠券ID: {}", order.getId(), userId, voucherId);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public Set<Long> createVoucherOrders(Long voucherId, Map<Long, Long> orders) {
+        if (orders.isEmpty()) {
+            return Collections.emptySet();
+        }
+        // 先加锁读取库存，同一秒杀券的批量下单在此串行，重复投递的消息不会同时通过下面的去重检查
+        Integer stock = seckillVoucherMapper.selectStockForUpdate(voucherId);
+
+        // 一次查询过滤已下单的用户
+        Set<Long> ordered = new HashSet<>(listObjs(new QueryWrapper<VoucherOrder>()
+                .select("user_id").eq("voucher_id", voucherId).in("user_id", orders.keySet()),
+                o -> ((Number) o).longValue()));
+        List<Long> buyers = new ArrayList<>(orders.size());
+        for (Long userId : orders.keySet()) {
+            if (!ordered.contains(userId)) {
+                buyers.add(userId);
+            }
+        }
+        if (!ordered.isEmpty()) {
+            log.warn("跳过已下单的用户: voucherId={}, userIds={}", voucherId, ordered);
+        }
+        if (buyers.isEmpty()) {
+            return ordered;
+        }
+
+        // 一次扣减
+        int take = stock == null ? 0 : Math.min(stock, buyers.size());
+        if (take < buyers.size()) {
+            log.warn("秒杀券{}库存不足，{}个用户跳过下单", voucherId, buyers.size() - take);
+        }
+        if (take == 0) {
+            return ordered;
+        }
+        seckillVoucherService.update()
+                .setSql("stock = stock - " + take)
+                .eq("voucher_id", voucherId)
+                .update();
+
+        // 多行插入
+        LocalDateTime now = LocalDateTime.now();
+        List<VoucherOrder> created = new ArrayList<>(take);
+        for (Long userId : buyers.subList(0, take)) {
+            Long orderId = orders.get(userId);
+            created.add(new VoucherOrder()
+                    .setId(orderId != null ? orderId : redisIdWorker.nextId("order"))
+                    .setUserId(userId)
+                    .setVoucherId(voucherId)
+                    .setCreateTime(now));
+            ordered.add(userId);
+        }
+        getBaseMapper().insertBatch(created);
+        log.info("批量创建订单成功，优惠券ID: {}, 订单数: {}", voucherId, take);
+        return ordered;
     }
 
 }
\ No newline at end of file
@@ -7,15 +7,13 @@ import com.hmdp.entity.Voucher;
 import com.hmdp.mapper.VoucherMapper;
 import com.hmdp.service.ISeckillVoucherService;
 import com.hmdp.service.IVoucherService;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import com.hmdp.utils.seckill.SeckillStockRouter;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Resource;
 import java.util.List;
 
-import static com.hmdp.utils.constans.RedisConstants.SECKILL_STOCK_KEY;
-
 /**
  * <p>
  *  服务实现类
@@ -30,7 +28,7 @@ public class VoucherServiceImpl extends ServiceImpl<VoucherMapper, Voucher> impl
     @Resource
     private ISeckillVoucherService seckillVoucherService;
     @Resource
-    private StringRedisTemplate stringRedisTemplate;
+    private SeckillStockRouter seckillStockRouter;
 
     @Override
     public Result queryVoucherOfShop(Long shopId) {
@@ -53,8 +51,8 @@ public class VoucherServiceImpl extends ServiceImpl<VoucherMapper, Voucher> impl
         seckillVoucher.setEndTime(voucher.getEndTime());
         seckillVoucherService.save(seckillVoucher);
 
-        //保存优惠券库存到redis String
-        stringRedisTemplate.opsForValue().set(SECKILL_STOCK_KEY + voucher.getId(), voucher.getStock().toString());
+        //保存优惠券库存到redis String，按配置拆分为多个分片
+        seckillStockRouter.initStock(voucher.getId(), voucher.getStock());
 
     }
 }
@@ -1,32 +1,44 @@
 package com.hmdp.utils;
 
-import cn.hutool.core.bean.BeanUtil;
-import cn.hutool.core.bean.copier.CopyOptions;
 import cn.hutool.core.util.BooleanUtil;
+import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONUtil;
-import cn.hutool.core.date.DatePattern;
-import java.time.format.DateTimeFormatter;
 
+import com.hmdp.properties.CacheProperties;
+import com.hmdp.utils.cache.CacheEnvelope;
+import com.hmdp.utils.cache.CacheRebuildScheduler;
+import com.hmdp.utils.cache.HashCodec;
+import com.hmdp.utils.cache.NegativeCache;
+import com.hmdp.utils.cache.SingleFlight;
+import com.hmdp.utils.cache.hotkey.HotKeyCache;
+import com.hmdp.utils.cache.serializer.CacheValueSerializer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Component;
 
-import java.lang.reflect.Field;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
-import static com.hmdp.utils.constans.RedisConstants.LOCK_SHOP_KEY;
+import static com.hmdp.utils.constans.RedisConstants.LOCK_CACHE_KEY;
 
 @Slf4j
 @Component
@@ -34,23 +46,78 @@ public class CacheClient {
 
     private final StringRedisTemplate stringRedisTemplate;
     
-    // 使用静态初始化避免循环依赖
-    private static final ExecutorService CACHE_REBUILD_EXECUTOR;
-    
-    static {
-        CACHE_REBUILD_EXECUTOR = Executors.newFixedThreadPool(10, r -> {
-            Thread t = new Thread(r, "cache-rebuild-thread");
-            t.setDaemon(true); // 设置为守护线程，避免阻止JVM退出
-            return t;
-        });
-    }
 
-    public CacheClient(@Lazy StringRedisTemplate stringRedisTemplate) {
+    /**
+     * 逻辑过期缓存的异步重建
+     */
+    private final CacheRebuildScheduler rebuildScheduler;
+
+    /**
+     * 读路径热点探测与热点本地缓存
+     */
+    private final HotKeyCache hotKeyCache;
+
+    /**
+     * 不存在id的负缓存，整数id不再逐个写入空值key
+     */
+    private final NegativeCache negativeCache;
+
+    private final LuaScriptRegistry luaScriptRegistry;
+
+    /**
+     * 缓存未命中时的请求合并，同一key在本节点同一时刻只有一次数据库查询
+     */
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    /**
+     * 逻辑过期缓存的序列化实现，写入使用配置的实现，读取按条目头部的id选择
+     */
+    private final CacheValueSerializer serializer;
+    private final Map<Byte, CacheValueSerializer> serializers = new HashMap<>();
+
+    /**
+     * 逻辑过期缓存的提前刷新系数
+     */
+    private final double earlyRefreshBeta;
+    private final Counter earlyRefreshCounter;
+
+    public CacheClient(@Lazy StringRedisTemplate stringRedisTemplate, MeterRegistry meterRegistry,
+                       List<CacheValueSerializer> serializerList, CacheProperties cacheProperties,
+                       CacheRebuildScheduler rebuildScheduler, HotKeyCache hotKeyCache,
+                       NegativeCache negativeCache, LuaScriptRegistry luaScriptRegistry) {
         this.stringRedisTemplate = stringRedisTemplate;
+        this.rebuildScheduler = rebuildScheduler;
+        this.hotKeyCache = hotKeyCache;
+        this.negativeCache = negativeCache;
+        this.luaScriptRegistry = luaScriptRegistry;
+        CacheValueSerializer configured = null;
+        for (CacheValueSerializer s : serializerList) {
+            if (serializers.put(s.id(), s) != null) {
+                throw new IllegalStateException("缓存序列化id重复: " + s.id());
+            }
+            if (s.name().equals(cacheProperties.getSerializer())) {
+                configured = s;
+            }
+        }
+        if (configured == null) {
+            throw new IllegalStateException("未知的缓存序列化方式: " + cacheProperties.getSerializer());
+        }
+        this.serializer = configured;
+        this.earlyRefreshBeta = cacheProperties.getEarlyRefreshBeta();
+        this.earlyRefreshCounter = Counter.builder("cache.refresh.early")
+                .description("逻辑过期缓存在到期前被提前刷新的次数")
+                .register(meterRegistry);
+        // 暴露合并加载与实际加载次数
+        FunctionCounter.builder("cache.load.executed", singleFlight, SingleFlight::getExecutedCount)
+                .description("缓存未命中后实际执行的数据库加载次数")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.load.coalesced", singleFlight, SingleFlight::getCoalescedCount)
+                .description("缓存未命中后被合并、共享他人加载结果的次数")
+                .register(meterRegistry);
+        Gauge.builder("cache.load.in-flight", singleFlight, SingleFlight::getInFlightCount)
+                .register(meterRegistry);
     }
 
-    private static final DateTimeFormatter NORM_DATETIME_PATTERN = DatePattern.NORM_DATETIME_FORMATTER;
-    
     /**
      * 智能设置方法
      */
@@ -94,18 +161,12 @@ public class CacheClient {
             hashData = convertToHashData((Map<String, Object>) value);
         } else {
             // 对象转Hash
-            Map<String, Object> beanMap = BeanUtil.beanToMap(value, new HashMap<>(),
-                    CopyOptions.create()
-                            .setFieldValueEditor((fieldName, fieldValue) -> 
-                                    fieldValue != null ? fieldValue.toString() : ""));
-            for (Map.Entry<String, Object> entry : beanMap.entrySet()) {
-                hashData.put(entry.getKey(), 
-                        entry.getValue() != null ? entry.getValue().toString() : "");
-            }
+            hashData = beanToHash(value);
         }
         
         stringRedisTemplate.opsForHash().putAll(key, hashData);
         stringRedisTemplate.expire(key, time, unit);
+        hotKeyCache.invalidate(key);
     }
 
     /**
@@ -132,12 +193,63 @@ public class CacheClient {
         return hashData;
     }
 
+    /**
+     * 逻辑过期格式写入 - 二进制格式，见 {@link CacheEnvelope}，value为null时写入空值
+     */
+    public <T> void setWithLogicalExpire(String key, T value, Long time, TimeUnit unit) {
+        setWithLogicalExpire(key, value, time, unit, 0L);
+    }
+
+    /**
+     * 逻辑过期格式写入，并记录数据重建耗时，用于概率提前刷新
+     * @param recomputeMillis 本次从数据库加载数据的耗时(毫秒)
+     */
+    public <T> void setWithLogicalExpire(String key, T value, Long time, TimeUnit unit, long recomputeMillis) {
+        long expireAt = System.currentTimeMillis() + unit.toMillis(time);
+        byte[] payload = value == null ? null : serializer.serialize(value);
+        byte[] raw = CacheEnvelope.encode(serializer.id(), expireAt, recomputeMillis, payload);
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        stringRedisTemplate.execute((RedisCallback<Object>) connection ->
+                connection.stringCommands().set(rawKey, raw));
+        hotKeyCache.invalidate(key);
+    }
+
+    /**
+     * 删除缓存
+     */
+    public void delete(String key) {
+        stringRedisTemplate.delete(key);
+        hotKeyCache.invalidate(key);
+    }
+
+    /**
+     * id是否已记录为不存在
+     */
+    public boolean isMissing(String keyPrefix, Object id) {
+        return negativeCache.isMissing(keyPrefix, id);
+    }
+
+    /**
+     * 记录数据库中不存在的id
+     */
+    public void markMissing(String keyPrefix, Object id) {
+        negativeCache.markMissing(keyPrefix, id);
+    }
+
+    /**
+     * 数据新增后清除不存在记录
+     */
+    public void clearMissing(String keyPrefix, Object id) {
+        negativeCache.clear(keyPrefix, id);
+    }
+
     /**
      * String存储 - 适合整体读写场景
      */
     public <T> void setString(String key, T value, Long time, TimeUnit unit) {
         String jsonValue = JSONUtil.toJsonStr(value);
         stringRedisTemplate.opsForValue().set(key, jsonValue, time, unit);
+        hotKeyCache.invalidate(key);
     }
 
     /**
@@ -157,21 +269,25 @@ public class CacheClient {
             TimeUnit unit,
             CacheStorageStrategy strategy) {  //存储策略参数
 
+        // 0. 本地负缓存命中，直接返回
+        if (negativeCache.isMissingLocally(keyPrefix, id)) {
+            return null;
+        }
+
         // 1. 查询redis
         String key = keyPrefix + id;
 
-        // 根据策略选择不同的查询逻辑
-        if (strategy == CacheStorageStrategy.HASH) {
-            return queryWithHashStrategy(key, id, type, dbFallback, time, unit);
-        } else {
-            return queryWithStringStrategy(key, id, type, dbFallback, time, unit);
-        }
+        // 根据策略选择不同的查询逻辑，热点key由本地热点区域承接
+        return hotKeyCache.get(key, () -> strategy == CacheStorageStrategy.HASH
+                ? queryWithHashStrategy(keyPrefix, key, id, type, dbFallback, time, unit)
+                : queryWithStringStrategy(keyPrefix, key, id, type, dbFallback, time, unit));
     }
 
     /**
      * Hash存储策略的查询
      */
     private <R, ID> R queryWithHashStrategy(
+            String keyPrefix,
             String key,
             ID id,
             Class<R> type,
@@ -200,17 +316,31 @@ public class CacheClient {
             }
         }
 
-        // 3. Redis没有，查询数据库
+        // 3. Redis没有，查询数据库（同一key的并发未命中合并为一次加载）
+        return singleFlight.execute(key, () -> loadHashFromDb(keyPrefix, key, id, dbFallback, time, unit));
+    }
+
+    /**
+     * 查询数据库并写回Redis Hash
+     */
+    private <R, ID> R loadHashFromDb(String keyPrefix, String key, ID id, Function<ID, R> dbFallback,
+                                    Long time, TimeUnit unit) {
+        // 查询数据库前检查负缓存（含Redis bitmap），命中时省去数据库查询
+        if (negativeCache.isMissing(keyPrefix, id)) {
+            return null;
+        }
         R result = dbFallback.apply(id);
 
-        // 4. 数据库不存在，缓存空值
+        // 4. 数据库不存在，整数id记入负缓存，其他id缓存空值
+        if (result == null && negativeCache.supports(id)) {
+            negativeCache.markMissing(keyPrefix, id);
+            return null;
+        }
         if (result == null) {
             try {
                 stringRedisTemplate.opsForHash().put(key, "_NULL_", "1");
                 // 使用与正常数据相同的随机TTL策略
-                long baseTtl = unit.toSeconds(time);
-                long randomTtl = baseTtl + new Random().nextInt((int) (baseTtl * 0.5));
-                stringRedisTemplate.expire(key, randomTtl, TimeUnit.SECONDS);
+                stringRedisTemplate.expire(key, randomTtlSeconds(time, unit), TimeUnit.SECONDS);
             } catch (Exception e) {
                 log.error("缓存空值失败", e);
             }
@@ -219,18 +349,10 @@ public class CacheClient {
 
         // 5. 数据库存在，写入Redis Hash
         try {
-            Map<String, Object> mapForRedis = BeanUtil.beanToMap(result, new HashMap<>(),
-                    CopyOptions.create()
-                            .setIgnoreNullValue(true)
-                            .setFieldValueEditor((fieldName, fieldValue) ->
-                                    fieldValue != null ? fieldValue.toString() : null));
-
-            stringRedisTemplate.opsForHash().putAll(key, mapForRedis);
+            stringRedisTemplate.opsForHash().putAll(key, beanToHash(result));
 
             // 使用随机TTL防止缓存雪崩
-            long baseTtl = unit.toSeconds(time);
-            long randomTtl = baseTtl + new Random().nextInt((int) (baseTtl * 0.5)); // 增加50%的随机时间
-            stringRedisTemplate.expire(key, randomTtl, TimeUnit.SECONDS);
+            stringRedisTemplate.expire(key, randomTtlSeconds(time, unit), TimeUnit.SECONDS);
 
         } catch (Exception e) {
             log.error("写入Redis Hash失败", e);
@@ -243,6 +365,7 @@ public class CacheClient {
      * String存储策略的查询
      */
     private <R, ID> R queryWithStringStrategy(
+            String keyPrefix,
             String key,
             ID id,
             Class<R> type,
@@ -270,10 +393,26 @@ public class CacheClient {
             }
         }
 
-        // 3. Redis没有，查询数据库
+        // 3. Redis没有，查询数据库（同一key的并发未命中合并为一次加载）
+        return singleFlight.execute(key, () -> loadStringFromDb(keyPrefix, key, id, dbFallback, time, unit));
+    }
+
+    /**
+     * 查询数据库并写回Redis String
+     */
+    private <R, ID> R loadStringFromDb(String keyPrefix, String key, ID id, Function<ID, R> dbFallback,
+                                    Long time, TimeUnit unit) {
+        // 查询数据库前检查负缓存（含Redis bitmap），命中时省去数据库查询
+        if (negativeCache.isMissing(keyPrefix, id)) {
+            return null;
+        }
         R result = dbFallback.apply(id);
 
-        // 4. 数据库不存在，缓存空值
+        // 4. 数据库不存在，整数id记入负缓存，其他id缓存空值
+        if (result == null && negativeCache.supports(id)) {
+            negativeCache.markMissing(keyPrefix, id);
+            return null;
+        }
         if (result == null) {
             try {
                 stringRedisTemplate.opsForValue().set(key, "_NULL_",
@@ -290,10 +429,7 @@ public class CacheClient {
             String jsonValue = JSONUtil.toJsonStr(result);
 
             // 使用随机TTL防止缓存雪崩
-            long baseTtl = unit.toSeconds(time);
-            long randomTtl = baseTtl + new Random().nextInt((int) (baseTtl * 0.5));
-
-            stringRedisTemplate.opsForValue().set(key, jsonValue, randomTtl, TimeUnit.SECONDS);
+            stringRedisTemplate.opsForValue().set(key, jsonValue, randomTtlSeconds(time, unit), TimeUnit.SECONDS);
 
         } catch (Exception e) {
             log.error("写入Redis String失败", e);
@@ -303,130 +439,358 @@ public class CacheClient {
     }
 
     /**
-     * 逻辑过期解决缓存击穿
+     * 批量查询 - 一次Redis往返读取全部key，未命中的id合并为一次数据库查询，再一次性写回Redis
+     * @param keyPrefix key前缀
+     * @param ids 待查询的id
+     * @param type 实体类型
+     * @param batchFallback 批量数据库查询，返回 id -> 实体，不存在的id不放入结果
+     * @param time 缓存时间
+     * @param unit 时间单位
+     * @param strategy 存储策略，支持STRING和HASH
+     * @return 按入参顺序排列的 id -> 实体，不存在的id不包含在结果中
      */
-    public <R, ID> R queryWithLogicalExpire(
+    public <R, ID> Map<ID, R> queryByIds(
             String keyPrefix,
-            ID id,
+            Collection<ID> ids,
             Class<R> type,
-            Function<ID, R> dbFallback,
-            Long expireTime,
+            Function<Collection<ID>, Map<ID, R>> batchFallback,
+            Long time,
             TimeUnit unit,
             CacheStorageStrategy strategy) {
 
-        String key = keyPrefix + id;
-
-        // 根据策略选择不同的查询逻辑
-        if (strategy == CacheStorageStrategy.HASH) {
-            return queryWithLogicalExpireHashStrategy(key, id, type, dbFallback, expireTime, unit);
-        } else {
-            return queryWithLogicalExpireStringStrategy(key, id, type, dbFallback, expireTime, unit);
+        Map<ID, R> result = new LinkedHashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return result;
+        }
+        List<ID> idList = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<String> keys = new ArrayList<>(idList.size());
+        Iterator<ID> it = idList.iterator();
+        while (it.hasNext()) {
+            ID id = it.next();
+            // 本地负缓存命中的id不再访问Redis
+            if (negativeCache.isMissingLocally(keyPrefix, id)) {
+                it.remove();
+                continue;
+            }
+            String key = keyPrefix + id;
+            keys.add(key);
+            hotKeyCache.record(key);
+        }
+        if (idList.isEmpty()) {
+            return result;
         }
-    }
 
-    private <R, ID> R queryWithLogicalExpireStringStrategy(String key, ID id, Class<R> type, Function<ID,R> dbFallback, Long expireTime, TimeUnit unit) {
+        // 1. 一次往返读取所有key
+        boolean hash = strategy == CacheStorageStrategy.HASH;
+        List<?> cached;
         try {
-            // 1. 从Redis查询缓存
-            Map<Object, Object> cacheMap = stringRedisTemplate.opsForHash().entries(key);
+            cached = hash ? multiGetHash(keys) : stringRedisTemplate.opsForValue().multiGet(keys);
+        } catch (Exception e) {
+            log.error("批量读取Redis失败，全部从数据库查询，keyPrefix: {}", keyPrefix, e);
+            cached = null;
+        }
 
-            // 2. 缓存不存在
-            if (cacheMap.isEmpty()) {
-                return null;
+        // 2. 解析命中的数据，收集未命中的id
+        List<ID> missing = new ArrayList<>();
+        for (int i = 0; i < idList.size(); i++) {
+            ID id = idList.get(i);
+            Object raw = cached == null || i >= cached.size() ? null : cached.get(i);
+            if (isNullMarker(raw)) {
+                continue;
             }
-
-            // 3. 检查是否是空值缓存
-            if (cacheMap.containsKey("_NULL_")) {
-                return null;
+            R value = decodeCached(raw, type, keys.get(i));
+            if (value != null) {
+                result.put(id, value);
+            } else {
+                missing.add(id);
             }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
 
-            // 4. 检查是否是逻辑过期格式
-            if (cacheMap.containsKey("expireTime") && cacheMap.containsKey("data")) {
-                return handleLogicalExpireFormat(cacheMap, key, id, type, dbFallback, expireTime, unit);
-            } else {
-                // 处理传统格式并异步转换
-                return handleLegacyFormat(cacheMap, key, id, type, dbFallback, expireTime, unit);
+        // 3. 未命中的id合并为一次数据库查询
+        Map<ID, R> loaded = batchFallback.apply(missing);
+        if (loaded == null) {
+            loaded = Collections.emptyMap();
+        }
+
+        // 4. 一次管道写回，数据库不存在的整数id记入负缓存，其他id缓存空值
+        List<ID> absent = new ArrayList<>();
+        for (ID id : missing) {
+            if (!loaded.containsKey(id)) {
+                absent.add(id);
             }
+        }
+        negativeCache.markMissingAll(keyPrefix, absent);
+        try {
+            writeBackBatch(keyPrefix, missing, loaded, hash, time, unit);
         } catch (Exception e) {
-            // 处理Redis数据类型不匹配等异常
-            log.warn("Redis缓存读取异常，可能由于数据类型不匹配，key: {}", key, e);
-            // 清理异常的key
-            stringRedisTemplate.delete(key);
+            log.error("批量写回Redis失败，keyPrefix: {}", keyPrefix, e);
+        }
+
+        // 5. 按入参顺序组装结果
+        Map<ID, R> ordered = new LinkedHashMap<>();
+        for (ID id : idList) {
+            R value = result.containsKey(id) ? result.get(id) : loaded.get(id);
+            if (value != null) {
+                ordered.put(id, value);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * 管道批量读取Hash
+     */
+    private List<Object> multiGetHash(List<String> keys) {
+        return stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                connection.hashCommands().hGetAll(key.getBytes(StandardCharsets.UTF_8));
+            }
             return null;
+        });
+    }
+
+    private boolean isNullMarker(Object raw) {
+        if (raw instanceof String) {
+            return "_NULL_".equals(raw);
         }
+        return raw instanceof Map && ((Map<?, ?>) raw).containsKey("_NULL_");
     }
 
-    private <R, ID> R queryWithLogicalExpireHashStrategy(String key, ID id, Class<R> type, Function<ID,R> dbFallback, Long expireTime, TimeUnit unit) {
+    @SuppressWarnings("unchecked")
+    private <R> R decodeCached(Object raw, Class<R> type, String key) {
         try {
-            // 1. 从Redis查询缓存
-            Map<Object, Object> cacheMap = stringRedisTemplate.opsForHash().entries(key);
+            if (raw instanceof String && StrUtil.isNotBlank((String) raw)) {
+                return JSONUtil.toBean((String) raw, type);
+            }
+            if (raw instanceof Map && !((Map<?, ?>) raw).isEmpty()) {
+                return convertHashToObject((Map<Object, Object>) raw, type);
+            }
+        } catch (Exception e) {
+            log.error("Redis数据解析失败，key: {}, 从数据库查询", key, e);
+        }
+        return null;
+    }
 
-            // 2. 缓存不存在
-            if (cacheMap.isEmpty()) {
-                return null;
+    /**
+     * 管道批量写回
+     */
+    private <R, ID> void writeBackBatch(String keyPrefix, List<ID> ids, Map<ID, R> loaded,
+                                        boolean hash, Long time, TimeUnit unit) {
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (ID id : ids) {
+                byte[] key = (keyPrefix + id).getBytes(StandardCharsets.UTF_8);
+                long ttl = randomTtlSeconds(time, unit);
+                R value = loaded.get(id);
+                if (value == null && negativeCache.supports(id)) {
+                    // 已记入负缓存
+                    continue;
+                }
+                if (hash) {
+                    Map<byte[], byte[]> fields = new HashMap<>();
+                    if (value == null) {
+                        fields.put("_NULL_".getBytes(StandardCharsets.UTF_8), "1".getBytes(StandardCharsets.UTF_8));
+                    } else {
+                        for (Map.Entry<String, String> entry : beanToHash(value).entrySet()) {
+                            fields.put(entry.getKey().getBytes(StandardCharsets.UTF_8),
+                                    entry.getValue().getBytes(StandardCharsets.UTF_8));
+                        }
+                    }
+                    connection.hashCommands().hMSet(key, fields);
+                    connection.keyCommands().expire(key, ttl);
+                } else {
+                    String json = value == null ? "_NULL_" : JSONUtil.toJsonStr(value);
+                    connection.stringCommands().setEx(key, ttl, json.getBytes(StandardCharsets.UTF_8));
+                }
             }
+            return null;
+        });
+    }
+
+    /**
+     * 对象转Hash，忽略空字段
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Map<String, String> beanToHash(T value) {
+        return HashCodec.of((Class<T>) value.getClass()).encode(value);
+    }
 
-            // 3. 检查是否是空值缓存
-            if (cacheMap.containsKey("_NULL_")) {
+    /**
+     * 随机TTL防止缓存雪崩，在基础时间上增加至多50%的随机时间
+     */
+    private long randomTtlSeconds(Long time, TimeUnit unit) {
+        long baseTtl = unit.toSeconds(time);
+        return baseTtl + ThreadLocalRandom.current().nextLong(Math.max(1, baseTtl / 2));
+    }
+
+    /**
+     * 逻辑过期解决缓存击穿，提前刷新系数使用 hm.cache.early-refresh-beta 配置
+     */
+    public <R, ID> R queryWithLogicalExpire(
+            String keyPrefix,
+            ID id,
+            Class<R> type,
+            Function<ID, R> dbFallback,
+            Long expireTime,
+            TimeUnit unit,
+            CacheStorageStrategy strategy) {
+        return queryWithLogicalExpire(keyPrefix, id, type, dbFallback, expireTime, unit, strategy, earlyRefreshBeta);
+    }
+
+    /**
+     * 逻辑过期解决缓存击穿
+     * 数据以 {@link CacheEnvelope} 二进制格式存储，strategy仅为兼容保留；
+     * 遇到旧版Hash或JSON字符串格式时先返回旧数据，再异步重建为新格式。
+     * 未过期的数据按XFetch算法概率提前刷新，热点key在过期前就由少量请求完成重建，避免到期瞬间争抢锁
+     * @param beta 提前刷新系数，越大越早刷新，0表示只在过期后刷新
+     */
+    public <R, ID> R queryWithLogicalExpire(
+            String keyPrefix,
+            ID id,
+            Class<R> type,
+            Function<ID, R> dbFallback,
+            Long expireTime,
+            TimeUnit unit,
+            CacheStorageStrategy strategy,
+            double beta) {
+
+        if (negativeCache.isMissingLocally(keyPrefix, id)) {
+            return null;
+        }
+        String key = keyPrefix + id;
+        return hotKeyCache.get(key, () -> queryLogicalExpireEntry(key, id, type, dbFallback, expireTime, unit, beta));
+    }
+
+    /**
+     * 逻辑过期缓存未预热(Redis中不存在)时从数据库加载并写回，同一key的并发加载合并为一次
+     * @return 数据库中不存在时返回null，并记入负缓存
+     */
+    public <R, ID> R loadWithLogicalExpire(String keyPrefix, ID id, Function<ID, R> dbFallback,
+                                          Long expireTime, TimeUnit unit) {
+        String key = keyPrefix + id;
+        return singleFlight.execute(key, () -> {
+            if (negativeCache.isMissing(keyPrefix, id)) {
                 return null;
             }
-
-            // 4. 检查是否是逻辑过期格式
-            if (cacheMap.containsKey("expireTime") && cacheMap.containsKey("data")) {
-                return handleLogicalExpireFormat(cacheMap, key, id, type, dbFallback, expireTime, unit);
+            long start = System.currentTimeMillis();
+            R value = dbFallback.apply(id);
+            if (value != null) {
+                setWithLogicalExpire(key, value, expireTime, unit, System.currentTimeMillis() - start);
             } else {
-                // 处理传统格式并异步转换
-                return handleLegacyFormat(cacheMap, key, id, type, dbFallback, expireTime, unit);
+                negativeCache.markMissing(keyPrefix, id);
             }
-        } catch (Exception e) {
-            // 处理Redis数据类型不匹配等异常
-            log.warn("Redis缓存读取异常，可能由于数据类型不匹配，key: {}", key, e);
-            // 清理异常的key
-            stringRedisTemplate.delete(key);
+            return value;
+        });
+    }
+
+    private <R, ID> R queryLogicalExpireEntry(String key, ID id, Class<R> type, Function<ID, R> dbFallback,
+                                             Long expireTime, TimeUnit unit, double beta) {
+        byte[] raw;
+        try {
+            raw = getRaw(key);
+        } catch (RedisSystemException e) {
+            if (StrUtil.contains(e.getMessage(), "WRONGTYPE")) {
+                // 旧版Hash格式
+                return handleLegacyHash(key, id, type, dbFallback, expireTime, unit);
+            }
+            throw e;
+        }
+
+        // 1. 缓存不存在
+        if (raw == null) {
             return null;
         }
-    }
 
-    private <R, ID> R handleLogicalExpireFormat(Map<Object, Object> cacheMap, String key,
-                                                ID id, Class<R> type, Function<ID, R> dbFallback, Long expireTime, TimeUnit unit) {
+        CacheEnvelope envelope = CacheEnvelope.decode(raw);
+        if (envelope == null) {
+            // 2. 旧版JSON字符串，返回后异步重建
+            return handleLegacyString(raw, key, id, type, dbFallback, expireTime, unit);
+        }
 
+        R result;
         try {
-            // 解析逻辑过期时间
-            String expireTimeStr = String.valueOf(cacheMap.get("expireTime"));
-            LocalDateTime expireTimeInCache = LocalDateTime.parse(expireTimeStr, NORM_DATETIME_PATTERN);
-
-            // 判断是否逻辑过期
-            if (LocalDateTime.now().isBefore(expireTimeInCache)) {
-                // 未过期，直接返回数据
-                return extractDataFromCache(cacheMap.get("data"), type);
-            }
+            result = envelope.getValue(serializerOf(envelope), type);
+        } catch (Exception e) {
+            log.warn("缓存数据解析失败，key: {}", key, e);
+            stringRedisTemplate.delete(key);
+            return null;
+        }
 
-            // 已过期，尝试获取锁重建缓存
-            String lockKey = LOCK_SHOP_KEY + id;
-            if (tryLock(lockKey)) {
-                // 获取锁成功，异步重建缓存
-                CACHE_REBUILD_EXECUTOR.submit(() -> rebuildCache(key, id, dbFallback, expireTime, unit, lockKey));
+        // 3. 已过期或命中提前刷新，尝试获取锁重建缓存，返回当前数据
+        long now = System.currentTimeMillis();
+        // nextDouble 取值 [0, 1)，转换为 (0, 1] 避免 ln(0)
+        if (envelope.shouldRefresh(now, beta, 1.0 - ThreadLocalRandom.current().nextDouble())) {
+            if (!envelope.isExpired(now)) {
+                earlyRefreshCounter.increment();
             }
+            rebuildAsync(key, id, dbFallback, expireTime, unit);
+        }
+        return result;
+    }
+
+    private byte[] getRaw(String key) {
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        return stringRedisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.stringCommands().get(rawKey));
+    }
 
-            // 返回过期的数据
-            return extractDataFromCache(cacheMap.get("data"), type);
+    private CacheValueSerializer serializerOf(CacheEnvelope envelope) {
+        CacheValueSerializer s = serializers.get(envelope.getSerializerId());
+        if (s == null) {
+            throw new IllegalStateException("未知的缓存序列化id: " + envelope.getSerializerId());
+        }
+        return s;
+    }
 
+    private <R, ID> R handleLegacyString(byte[] raw, String key, ID id, Class<R> type,
+                                         Function<ID, R> dbFallback, Long expireTime, TimeUnit unit) {
+        R result = null;
+        try {
+            result = JSONUtil.toBean(new String(raw, StandardCharsets.UTF_8), type);
         } catch (Exception e) {
-            log.error("处理逻辑过期格式缓存失败", e);
-            return null;
+            log.warn("旧版缓存数据解析失败，key: {}", key, e);
         }
+        rebuildAsync(key, id, dbFallback, expireTime, unit);
+        return result;
     }
 
+    /**
+     * 旧版Hash格式：返回旧数据，并异步重建为二进制格式
+     */
+    private <R, ID> R handleLegacyHash(String key, ID id, Class<R> type, Function<ID, R> dbFallback,
+                                       Long expireTime, TimeUnit unit) {
+        Map<Object, Object> cacheMap = stringRedisTemplate.opsForHash().entries(key);
+        R result = null;
+        if (cacheMap.containsKey("data")) {
+            result = extractDataFromCache(cacheMap.get("data"), type);
+        } else if (!cacheMap.isEmpty() && !cacheMap.containsKey("_NULL_")) {
+            result = convertHashToObject(cacheMap, type);
+        }
+        rebuildAsync(key, id, dbFallback, expireTime, unit);
+        return result;
+    }
+
+    /**
+     * 获取锁后异步重建缓存，本节点已在重建的key直接返回，不再请求锁；
+     * 锁按缓存key区分，未获取到锁说明已有线程在重建；任务被丢弃时释放锁
+     */
+    private <R, ID> void rebuildAsync(String key, ID id, Function<ID, R> dbFallback, Long expireTime, TimeUnit unit) {
+        if (rebuildScheduler.isDuplicate(key)) {
+            return;
+        }
+        String lockKey = LOCK_CACHE_KEY + key;
+        String token = tryLock(lockKey);
+        if (token != null && !rebuildScheduler.submit(key,
+                () -> rebuildCache(key, id, dbFallback, expireTime, unit, lockKey, token))) {
+            unLock(lockKey, token);
+        }
+    }
 
     private <R> R extractDataFromCache(Object dataObj, Class<R> type) {
         if (dataObj instanceof Map) {
-            Map<?, ?> rawMap = (Map<?, ?>) dataObj;
-            Map<Object, Object> dataMap = new HashMap<>();
-
-            for (Map.Entry<?, ?> entry : rawMap.entrySet()) {
-                dataMap.put(String.valueOf(entry.getKey()), entry.getValue());
-            }
-
-            return convertHashToObject(dataMap, type);
+            return HashCodec.of(type).decode((Map<?, ?>) dataObj);
         } else if (dataObj instanceof String) {
             // 处理JSON字符串
             String jsonStr = (String) dataObj;
@@ -440,46 +804,18 @@ public class CacheClient {
         return null;
     }
 
-    private <R, ID> R handleLegacyFormat(Map<Object, Object> cacheMap, String key,
-                                         ID id, Class<R> type, Function<ID, R> dbFallback, Long expireTime, TimeUnit unit) {
-
-        // 先返回传统格式的数据
-        R result = convertHashToObject(cacheMap, type);
-
-        // 异步转换为逻辑过期格式
-        CACHE_REBUILD_EXECUTOR.submit(() -> {
-            try {
-                rebuildCache(key, id, dbFallback, expireTime, unit, null);
-            } catch (Exception e) {
-                log.error("异步重建缓存失败", e);
-            }
-        });
-
-        return result;
-    }
-
     private <R, ID> void rebuildCache(String key, ID id, Function<ID, R> dbFallback,
-                                   Long expireTime, TimeUnit unit, String lockKey) {
+                                   Long expireTime, TimeUnit unit, String lockKey, String token) {
         try {
+            long start = System.currentTimeMillis();
             R result = dbFallback.apply(id);
-            if (result != null) {
-                // 正确的数据结构
-                String dataJson = JSONUtil.toJsonStr(result);
-
-                Map<String, String> cacheData = new HashMap<>();
-                cacheData.put("data", dataJson);
-                cacheData.put("expireTime", LocalDateTime.now().plusSeconds(unit.toSeconds(expireTime)).format(NORM_DATETIME_PATTERN));
-
-                stringRedisTemplate.opsForHash().putAll(key, cacheData);
-            } else {
-                // 缓存空值
-                stringRedisTemplate.opsForHash().put(key, "_NULL_", "1");
-            }
+            // 结果为空时写入空值，同时记录重建耗时
+            setWithLogicalExpire(key, result, expireTime, unit, System.currentTimeMillis() - start);
         } catch (Exception e) {
             log.error("重建缓存失败", e);
         } finally {
             if (lockKey != null) {
-                unLock(lockKey);
+                unLock(lockKey, token);
             }
         }
     }
@@ -488,29 +824,29 @@ public class CacheClient {
      * 互斥锁解决缓存击穿（对于某个过期key进行大量访问）
      */
     /**
-     * 加锁
+     * 加锁，锁的值为本次加锁的随机token
      * @param key
+     * @return token，未获取到锁时为null
      */
-    private boolean tryLock(String key) {
-        Boolean flag = stringRedisTemplate.opsForValue().setIfAbsent(key, "1", 10, TimeUnit.SECONDS);
-        return BooleanUtil.isTrue(flag);
+    private String tryLock(String key) {
+        String token = IdUtil.fastSimpleUUID();
+        Boolean flag = stringRedisTemplate.opsForValue().setIfAbsent(key, token, 10, TimeUnit.SECONDS);
+        return BooleanUtil.isTrue(flag) ? token : null;
     }
 
     /**
      * 释放锁
      * @param key
+     * @param token 加锁时返回的token
      */
-    private void unLock(String key) {
-        // 使用Lua脚本保证原子性，避免误释放其他线程的锁
-        String script = "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end";
-        stringRedisTemplate.execute(new DefaultRedisScript<>(script, Long.class),
-                Collections.singletonList(key),
-                stringRedisTemplate.opsForValue().get(key));
+    private void unLock(String key, String token) {
+        // 使用Lua脚本保证原子性，只释放自己持有的锁，锁已超时被他人获取时不会误删
+        luaScriptRegistry.execute(LuaScriptRegistry.UNLOCK, Collections.singletonList(key), token);
     }
 
 
     /**
-     * 通用Hash转对象方法 - 支持泛型
+     * 通用Hash转对象方法 - 支持泛型，按类型缓存的编解码器完成转换
      */
     private <R> R convertHashToObject(Map<Object, Object> hashMap, Class<R> type) {
         if (hashMap == null || hashMap.isEmpty()) {
@@ -519,75 +855,10 @@ public class CacheClient {
         }
 
         try {
-            // 先将所有值转换为String
-            Map<String, Object> convertedMap = new HashMap<>();
-            for (Map.Entry<Object, Object> entry : hashMap.entrySet()) {
-                String field = entry.getKey().toString();
-                Object value = entry.getValue();
-                convertedMap.put(field, value != null ? value.toString() : null);
-            }
-
-            // 使用反射获取字段类型信息，实现智能转换
-            return BeanUtil.mapToBean(convertedMap, type, true, createTypeAwareCopyOptions(type));
-
+            return HashCodec.of(type).decode(hashMap);
         } catch (Exception e) {
             log.error("Hash转对象失败", e);
             return null;
         }
     }
-
-    /**
-     * 创建类型感知的CopyOptions - 根据类字段类型自动转换
-     */
-    private <R> CopyOptions createTypeAwareCopyOptions(Class<R> type) {
-        // 获取类的所有字段类型信息
-        Field[] fields = type.getDeclaredFields();
-        Map<String, Class<?>> fieldTypes = new HashMap<>();
-        for (Field field : fields) {
-            fieldTypes.put(field.getName(), field.getType());
-        }
-
-        return new CopyOptions()
-                .ignoreNullValue()
-                .setFieldValueEditor((fieldName, fieldValue) -> {
-                    if (fieldValue == null) {
-                        return null;
-                    }
-
-                    String strValue = fieldValue.toString();
-                    if (strValue.isEmpty()) {
-                        return null;
-                    }
-
-                    // 根据字段实际类型进行转换
-                    Class<?> fieldType = fieldTypes.get(fieldName);
-                    if (fieldType == null) {
-                        return strValue; // 未知字段，保持字符串
-                    }
-
-                    try {
-                        if (fieldType == Long.class || fieldType == long.class) {
-                            return Long.parseLong(strValue);
-                        } else if (fieldType == Integer.class || fieldType == int.class) {
-                            return Integer.parseInt(strValue);
-                        } else if (fieldType == Double.class || fieldType == double.class) {
-                            return Double.parseDouble(strValue);
-                        } else if (fieldType == Float.class || fieldType == float.class) {
-                            return Float.parseFloat(strValue);
-                        } else if (fieldType == Boolean.class || fieldType == boolean.class) {
-                            return Boolean.parseBoolean(strValue);
-                        } else if (fieldType == LocalDateTime.class) {
-                            return LocalDateTime.parse(strValue, NORM_DATETIME_PATTERN);
-                        } else if (fieldType == LocalDate.class) {
-                            return LocalDate.parse(strValue);
-                        }
-                        // 其他类型保持字符串，或者可以继续扩展
-                    } catch (Exception e) {
-                        log.warn("字段类型转换失败: {} = {}, 目标类型: {}", fieldName, strValue, fieldType.getSimpleName());
-                        return strValue; // 转换失败保持原值
-                    }
-
-                    return strValue;
-                });
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,95 @@
+package com.hmdp.utils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lua脚本注册表
+ * 所有脚本从 classpath 的 {name}.lua 加载一次，SHA在本地计算；启动完成后 SCRIPT LOAD 预加载到Redis。
+ * 执行走 StringRedisTemplate 的脚本执行器：先 EVALSHA，Redis返回NOSCRIPT（重启、主从切换后）时回退 EVAL 并重新缓存。
+ * 每个脚本单独记录执行耗时直方图 redis.script.latency{script=name}
+ */
+@Slf4j
+@Component
+public class LuaScriptRegistry {
+
+    public static final String SECKILL = "seckill";
+    public static final String SECKILL_BORROW = "seckillBorrow";
+    public static final String SECKILL_RESTORE = "seckillRestore";
+    public static final String SECKILL_ADJUST = "seckillAdjust";
+    public static final String UNLOCK = "unLock";
+    public static final String NEGATIVE_CLEAR = "negativeClear";
+
+    private static final List<String> SCRIPTS = Arrays.asList(
+            SECKILL, SECKILL_BORROW, SECKILL_RESTORE, SECKILL_ADJUST, UNLOCK, NEGATIVE_CLEAR);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final Map<String, DefaultRedisScript<Long>> scripts = new HashMap<>();
+    private final Map<String, Timer> timers = new HashMap<>();
+
+    public LuaScriptRegistry(@Lazy StringRedisTemplate stringRedisTemplate, MeterRegistry meterRegistry) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        for (String name : SCRIPTS) {
+            DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+            script.setLocation(new ClassPathResource(name + ".lua"));
+            script.setResultType(Long.class);
+            scripts.put(name, script);
+            timers.put(name, Timer.builder("redis.script.latency")
+                    .description("Lua脚本执行耗时")
+                    .tag("script", name)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * 执行脚本，所有脚本返回整数
+     */
+    public Long execute(String name, List<String> keys, String... args) {
+        DefaultRedisScript<Long> script = script(name);
+        return timers.get(name).record(() -> stringRedisTemplate.execute(script, keys, (Object[]) args));
+    }
+
+    /**
+     * 把所有脚本加载到Redis脚本缓存，可重复调用；开售预热时再调用一次，覆盖期间发生的主从切换
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        try {
+            stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+                for (DefaultRedisScript<Long> script : scripts.values()) {
+                    connection.scriptingCommands().scriptLoad(
+                            script.getScriptAsString().getBytes(StandardCharsets.UTF_8));
+                }
+                return null;
+            });
+            log.info("Lua脚本预加载完成: {}", SCRIPTS);
+        } catch (Exception e) {
+            // 执行时仍可回退EVAL，不影响启动
+            log.warn("Lua脚本预加载失败", e);
+        }
+    }
+
+    private DefaultRedisScript<Long> script(String name) {
+        DefaultRedisScript<Long> script = scripts.get(name);
+        if (script == null) {
+            throw new IllegalArgumentException("未注册的Lua脚本: " + name);
+        }
+        return script;
+    }
+}
@@ -1,8 +1,6 @@
 package com.hmdp.utils;
 
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.script.DefaultRedisScript;
 
 import java.util.Collections;
 import java.util.UUID;
@@ -12,25 +10,20 @@ public class SimpleRedisLock implements ILock{
 
     private StringRedisTemplate stringRedisTemplate;
 
+    private LuaScriptRegistry luaScriptRegistry;
+
     private String name;
 
-    public SimpleRedisLock(String name, StringRedisTemplate stringRedisTemplate) {
+    public SimpleRedisLock(String name, StringRedisTemplate stringRedisTemplate, LuaScriptRegistry luaScriptRegistry) {
         this.name = name;
         this.stringRedisTemplate = stringRedisTemplate;
+        this.luaScriptRegistry = luaScriptRegistry;
     }
 
     private static final String KEY_PREFIX = "lock:";
     //线程ID - UUID
     private static final String ID_PREFIX = UUID.randomUUID() + "-";
 
-    //释放锁的脚本
-    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT;
-    static {
-        UNLOCK_SCRIPT = new DefaultRedisScript<>();
-        UNLOCK_SCRIPT.setLocation(new ClassPathResource("unLock.lua"));
-        UNLOCK_SCRIPT.setResultType(Long.class);
-    }
-
     @Override
     public boolean tryLock(Long timeoutSec) {
         // 获取线程唯一标识
@@ -46,8 +39,8 @@ public class SimpleRedisLock implements ILock{
     @Override
     public void unLock() {
         //Lua脚本实现释放锁的原子性
-        // 调用lua脚本
-        stringRedisTemplate.execute(UNLOCK_SCRIPT,
+        // 调用lua脚本，由注册表以EVALSHA执行
+        luaScriptRegistry.execute(LuaScriptRegistry.UNLOCK,
                 Collections.singletonList(KEY_PREFIX + name),
                 ID_PREFIX + Thread.currentThread().getId());
     }
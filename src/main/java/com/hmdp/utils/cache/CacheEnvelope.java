@@ -0,0 +1,109 @@
+package com.hmdp.utils.cache;
+
+import com.hmdp.utils.cache.serializer.CacheValueSerializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 逻辑过期缓存条目的二进制格式
+ * <pre>
+ * | magic(1) | version(1) | serializerId(1) | expireAt(8, 毫秒时间戳) | delta(4, 重建耗时毫秒) | payload |
+ * </pre>
+ * payload为空表示缓存的空值。读取时只需比较时间戳，不再解析日期字符串。
+ * delta用于概率提前刷新，见 {@link #shouldRefresh(long, double, double)}
+ */
+public final class CacheEnvelope {
+
+    static final byte MAGIC = (byte) 0xCE;
+    static final byte VERSION = 1;
+    static final int HEADER_LENGTH = 15;
+
+    private final byte[] raw;
+    private final byte serializerId;
+    private final long expireAt;
+    private final int delta;
+
+    private CacheEnvelope(byte[] raw, byte serializerId, long expireAt, int delta) {
+        this.raw = raw;
+        this.serializerId = serializerId;
+        this.expireAt = expireAt;
+        this.delta = delta;
+    }
+
+    /**
+     * 编码
+     * @param deltaMillis 数据重建耗时(毫秒)
+     * @param payload 序列化后的数据，null表示空值
+     */
+    public static byte[] encode(byte serializerId, long expireAt, long deltaMillis, byte[] payload) {
+        int length = payload == null ? 0 : payload.length;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + length)
+                .put(MAGIC)
+                .put(VERSION)
+                .put(serializerId)
+                .putLong(expireAt)
+                .putInt((int) Math.min(Integer.MAX_VALUE, Math.max(0, deltaMillis)));
+        if (payload != null) {
+            buffer.put(payload);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 解码，不是该格式时返回null（如旧版JSON字符串）
+     */
+    public static CacheEnvelope decode(byte[] raw) {
+        if (raw == null || raw.length < HEADER_LENGTH || raw[0] != MAGIC || raw[1] != VERSION) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(raw, 2, HEADER_LENGTH - 2);
+        byte serializerId = buffer.get();
+        long expireAt = buffer.getLong();
+        return new CacheEnvelope(raw, serializerId, expireAt, buffer.getInt());
+    }
+
+    public byte getSerializerId() {
+        return serializerId;
+    }
+
+    public long getExpireAt() {
+        return expireAt;
+    }
+
+    public int getDelta() {
+        return delta;
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expireAt;
+    }
+
+    /**
+     * XFetch概率提前刷新：now - delta * beta * ln(random) >= expireAt 时刷新。
+     * 重建越慢、离过期越近，刷新概率越高；已过期时一定刷新，beta为0时退化为到期刷新
+     * @param random (0, 1] 的随机数
+     */
+    public boolean shouldRefresh(long nowMillis, double beta, double random) {
+        if (isExpired(nowMillis)) {
+            return true;
+        }
+        if (beta <= 0 || delta <= 0) {
+            return false;
+        }
+        return nowMillis - delta * beta * Math.log(random) >= expireAt;
+    }
+
+    public boolean isNullValue() {
+        return raw.length == HEADER_LENGTH;
+    }
+
+    /**
+     * 反序列化数据，空值返回null
+     */
+    public <T> T getValue(CacheValueSerializer serializer, Class<T> type) {
+        if (isNullValue()) {
+            return null;
+        }
+        return serializer.deserialize(raw, HEADER_LENGTH, raw.length - HEADER_LENGTH, type);
+    }
+}
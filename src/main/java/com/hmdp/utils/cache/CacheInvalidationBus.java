@@ -0,0 +1,191 @@
+package com.hmdp.utils.cache;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.hmdp.properties.CacheProperties;
+import com.hmdp.utils.cache.hotkey.HotKeyCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地缓存失效广播
+ * 本节点写入或失效L1时，通过Redis频道通知其他节点失效对应的L1条目。
+ * 同一时间窗口内的失效按缓存名称合并去重后发送，消息格式：节点id|发送时间戳|缓存名称|id1,id2,...
+ */
+@Slf4j
+@Component
+public class CacheInvalidationBus implements MessageListener {
+
+    private static final char SEPARATOR = '|';
+
+    /**
+     * 节点标识，忽略自己发出的消息
+     */
+    private final String nodeId = IdUtil.fastSimpleUUID();
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final TieredCacheManager tieredCacheManager;
+    private final HotKeyCache hotKeyCache;
+    private final NegativeCache negativeCache;
+    private final CacheProperties.Invalidation properties;
+
+    /**
+     * 待发送的失效id，按缓存名称分组
+     */
+    private final Map<String, Set<String>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "cache-invalidation-flusher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Counter publishedMessages;
+    private final Counter publishedKeys;
+    private final Counter receivedKeys;
+    private final Timer lag;
+
+    public CacheInvalidationBus(StringRedisTemplate stringRedisTemplate,
+                                RedisMessageListenerContainer listenerContainer,
+                                TieredCacheManager tieredCacheManager,
+                                HotKeyCache hotKeyCache,
+                                NegativeCache negativeCache,
+                                CacheProperties cacheProperties,
+                                MeterRegistry meterRegistry) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.tieredCacheManager = tieredCacheManager;
+        this.hotKeyCache = hotKeyCache;
+        this.negativeCache = negativeCache;
+        this.properties = cacheProperties.getInvalidation();
+        this.publishedMessages = Counter.builder("cache.invalidation.published.messages").register(meterRegistry);
+        this.publishedKeys = Counter.builder("cache.invalidation.published.keys").register(meterRegistry);
+        this.receivedKeys = Counter.builder("cache.invalidation.received.keys").register(meterRegistry);
+        // 从发送到其他节点完成失效的延迟，依赖各节点时钟同步
+        this.lag = Timer.builder("cache.invalidation.lag")
+                .description("本地缓存跨节点失效延迟")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        listenerContainer.addMessageListener(this, new ChannelTopic(properties.getChannel()));
+        tieredCacheManager.setInvalidationBus(this);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flusher.shutdown();
+        flush();
+    }
+
+    /**
+     * 登记一次本地缓存变更，在下一个时间窗口合并广播
+     * @param cacheName 缓存名称
+     * @param id 数据id
+     */
+    public void publish(String cacheName, Object id) {
+        if (pending.computeIfAbsent(cacheName, k -> ConcurrentHashMap.newKeySet()).add(String.valueOf(id))) {
+            pendingCount.incrementAndGet();
+        }
+        if (pendingCount.get() >= properties.getMaxBatchSize()) {
+            // 积压过多，立即发送
+            flusher.execute(this::flush);
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            flusher.schedule(this::flush, properties.getFlushInterval(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        for (Map.Entry<String, Set<String>> entry : pending.entrySet()) {
+            List<String> ids = new ArrayList<>();
+            Iterator<String> iterator = entry.getValue().iterator();
+            while (iterator.hasNext()) {
+                ids.add(iterator.next());
+                iterator.remove();
+                pendingCount.decrementAndGet();
+                if (ids.size() >= properties.getMaxBatchSize()) {
+                    send(entry.getKey(), ids);
+                    ids = new ArrayList<>();
+                }
+            }
+            if (!ids.isEmpty()) {
+                send(entry.getKey(), ids);
+            }
+        }
+    }
+
+    private void send(String cacheName, List<String> ids) {
+        String message = nodeId + SEPARATOR + System.currentTimeMillis() + SEPARATOR
+                + cacheName + SEPARATOR + String.join(",", ids);
+        try {
+            stringRedisTemplate.convertAndSend(properties.getChannel(), message);
+            publishedMessages.increment();
+            publishedKeys.increment(ids.size());
+        } catch (Exception e) {
+            log.error("发送本地缓存失效广播失败，cache: {}, ids: {}", cacheName, ids, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        List<String> parts = StrUtil.split(body, SEPARATOR, 4);
+        if (parts.size() != 4) {
+            log.warn("无法解析的本地缓存失效消息: {}", body);
+            return;
+        }
+        if (nodeId.equals(parts.get(0))) {
+            return;
+        }
+        TieredCache<?, ?> cache = tieredCacheManager.getCache(parts.get(2));
+        if (cache == null) {
+            return;
+        }
+        List<String> ids = StrUtil.split(parts.get(3), ',');
+        for (String id : ids) {
+            String key = cache.getKeyPrefix() + id;
+            cache.getLocal().invalidate(key);
+            hotKeyCache.invalidate(key);
+            negativeCache.clearLocal(cache.getKeyPrefix(), id);
+        }
+        receivedKeys.increment(ids.size());
+        try {
+            long sentAt = Long.parseLong(parts.get(1));
+            lag.record(Math.max(0, System.currentTimeMillis() - sentAt), TimeUnit.MILLISECONDS);
+        } catch (NumberFormatException e) {
+            log.warn("本地缓存失效消息时间戳错误: {}", body);
+        }
+    }
+}
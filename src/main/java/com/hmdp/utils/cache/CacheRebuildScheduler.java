@@ -0,0 +1,117 @@
+package com.hmdp.utils.cache;
+
+import com.hmdp.properties.CacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 缓存异步重建调度
+ * 有界队列 + 按key去重：同一key在排队或执行中时不再重复提交；队列满时按配置丢弃或由调用线程执行
+ */
+@Slf4j
+@Component
+public class CacheRebuildScheduler {
+
+    private final ThreadPoolExecutor executor;
+    private final Set<String> pendingKeys = ConcurrentHashMap.newKeySet();
+    private final boolean callerRuns;
+
+    private final Counter rejectedCounter;
+    private final Counter deduplicatedCounter;
+    private final Timer latencyTimer;
+
+    public CacheRebuildScheduler(CacheProperties cacheProperties, MeterRegistry meterRegistry) {
+        CacheProperties.Rebuild rebuild = cacheProperties.getRebuild();
+        this.callerRuns = "caller-runs".equalsIgnoreCase(rebuild.getRejectionPolicy());
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(rebuild.getThreads(), rebuild.getThreads(),
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(rebuild.getQueueCapacity()),
+                r -> {
+                    Thread t = new Thread(r, "cache-rebuild-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true); // 设置为守护线程，避免阻止JVM退出
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("cache.rebuild.queue.size", executor, e -> e.getQueue().size())
+                .description("等待执行的缓存重建任务数")
+                .register(meterRegistry);
+        Gauge.builder("cache.rebuild.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("cache.rebuild.rejected")
+                .description("队列已满被丢弃的重建任务数")
+                .register(meterRegistry);
+        this.deduplicatedCounter = Counter.builder("cache.rebuild.deduplicated")
+                .description("同一key已在重建中被合并的任务数")
+                .register(meterRegistry);
+        this.latencyTimer = Timer.builder("cache.rebuild.latency")
+                .description("缓存重建耗时")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * key是否已在排队或执行中，是则计入去重次数
+     * 提交前先做本地检查，重复的重建请求不必再去Redis抢锁
+     */
+    public boolean isDuplicate(String key) {
+        if (pendingKeys.contains(key)) {
+            deduplicatedCounter.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 提交重建任务
+     * @param key 缓存key，用于去重
+     * @param task 重建逻辑
+     * @return 任务被接受（已排队或已由调用线程执行）返回true；重复或被丢弃返回false
+     */
+    public boolean submit(String key, Runnable task) {
+        if (!pendingKeys.add(key)) {
+            deduplicatedCounter.increment();
+            return false;
+        }
+        Runnable wrapped = () -> {
+            try {
+                latencyTimer.record(task);
+            } catch (Exception e) {
+                log.error("缓存重建失败，key: {}", key, e);
+            } finally {
+                pendingKeys.remove(key);
+            }
+        };
+        try {
+            executor.execute(wrapped);
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            if (callerRuns && !executor.isShutdown()) {
+                wrapped.run();
+                return true;
+            }
+            pendingKeys.remove(key);
+            log.warn("缓存重建队列已满，丢弃任务，key: {}", key);
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
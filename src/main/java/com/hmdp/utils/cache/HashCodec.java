@@ -0,0 +1,282 @@
+package com.hmdp.utils.cache;
+
+import cn.hutool.core.date.DatePattern;
+import cn.hutool.json.JSONUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Redis Hash 与 Java Bean 互转的编解码器
+ * 每个类型只在第一次使用时解析一次属性表，getter/setter/构造器通过 LambdaMetafactory 生成调用点，
+ * 之后的编解码不再经过反射和中间Map。
+ * 时间字段写入 yyyy-MM-dd HH:mm:ss 格式，读取时兼容ISO格式的旧数据。
+ * @param <T> 实体类型
+ */
+@Slf4j
+public final class HashCodec<T> {
+
+    private static final DateTimeFormatter NORM_DATETIME = DatePattern.NORM_DATETIME_FORMATTER;
+
+    private static final ClassValue<HashCodec<?>> CODECS = new ClassValue<HashCodec<?>>() {
+        @Override
+        protected HashCodec<?> computeValue(Class<?> type) {
+            return new HashCodec<>(type);
+        }
+    };
+
+    private final Class<T> type;
+    private final Supplier<Object> constructor;
+    private final Property[] properties;
+    private final Map<String, Property> propertyMap;
+
+    /**
+     * 获取类型对应的编解码器
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> HashCodec<T> of(Class<T> type) {
+        return (HashCodec<T>) CODECS.get(type);
+    }
+
+    private HashCodec(Class<T> type) {
+        this.type = type;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        this.constructor = constructor(lookup, type);
+        List<Property> list = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+                    continue;
+                }
+                Property property = property(lookup, type, field);
+                if (property != null) {
+                    list.add(property);
+                }
+            }
+        }
+        this.properties = list.toArray(new Property[0]);
+        Map<String, Property> map = new HashMap<>(properties.length * 2);
+        for (Property property : properties) {
+            map.put(property.name, property);
+        }
+        this.propertyMap = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Bean转Hash，忽略空字段
+     */
+    public Map<String, String> encode(T bean) {
+        Map<String, String> hash = new HashMap<>(properties.length * 2);
+        for (Property property : properties) {
+            Object value = property.getter.apply(bean);
+            if (value != null) {
+                hash.put(property.name, property.format(value));
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Hash转Bean，未知字段和空字符串忽略，无法解析的字段记录日志后跳过
+     */
+    @SuppressWarnings("unchecked")
+    public T decode(Map<?, ?> hash) {
+        if (hash == null || hash.isEmpty()) {
+            return null;
+        }
+        T bean = (T) constructor.get();
+        for (Map.Entry<?, ?> entry : hash.entrySet()) {
+            Property property = propertyMap.get(String.valueOf(entry.getKey()));
+            if (property == null || entry.getValue() == null) {
+                continue;
+            }
+            String text = entry.getValue().toString();
+            if (text.isEmpty()) {
+                continue;
+            }
+            try {
+                property.setter.accept(bean, property.parse(text));
+            } catch (RuntimeException e) {
+                log.warn("字段类型转换失败: {}.{} = {}", type.getSimpleName(), property.name, text);
+            }
+        }
+        return bean;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<Object> constructor(MethodHandles.Lookup lookup, Class<?> type) {
+        MethodHandle handle;
+        try {
+            handle = lookup.findConstructor(type, MethodType.methodType(void.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException(type.getName() + " 缺少public无参构造器", e);
+        }
+        try {
+            CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+                    MethodType.methodType(Supplier.class),
+                    MethodType.methodType(Object.class), handle, MethodType.methodType(type));
+            return (Supplier<Object>) site.getTarget().invoke();
+        } catch (Throwable e) {
+            return () -> invoke(handle);
+        }
+    }
+
+    private static Property property(MethodHandles.Lookup lookup, Class<?> type, Field field) {
+        String name = field.getName();
+        Class<?> fieldType = field.getType();
+        String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        Method getter = findMethod(type, "get" + suffix);
+        if (getter == null && fieldType == boolean.class) {
+            getter = findMethod(type, "is" + suffix);
+        }
+        // 兼容lombok链式setter，返回值不限
+        Method setter = findMethod(type, "set" + suffix, fieldType);
+        if (getter == null || setter == null) {
+            return null;
+        }
+        try {
+            return new Property(name, fieldType, getter(lookup, type, lookup.unreflect(getter)),
+                    setter(lookup, type, lookup.unreflect(setter)));
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> getter(MethodHandles.Lookup lookup, Class<?> type, MethodHandle handle) {
+        try {
+            CallSite site = LambdaMetafactory.metafactory(lookup, "apply",
+                    MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class), handle,
+                    MethodType.methodType(wrap(handle.type().returnType()), type));
+            return (Function<Object, Object>) site.getTarget().invoke();
+        } catch (Throwable e) {
+            // 生成失败（如类加载器不可见）时退回MethodHandle调用
+            MethodHandle generic = handle.asType(MethodType.methodType(Object.class, Object.class));
+            return bean -> invoke(generic, bean);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> setter(MethodHandles.Lookup lookup, Class<?> type, MethodHandle handle) {
+        try {
+            CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+                    MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class), handle,
+                    MethodType.methodType(void.class, type, wrap(handle.type().parameterType(1))));
+            return (BiConsumer<Object, Object>) site.getTarget().invoke();
+        } catch (Throwable e) {
+            MethodHandle generic = handle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+            return (bean, value) -> invoke(generic, bean, value);
+        }
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+
+    private static Object invoke(MethodHandle handle, Object... args) {
+        try {
+            return handle.invokeWithArguments(args);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Method findMethod(Class<?> type, String name, Class<?>... parameterTypes) {
+        try {
+            Method method = type.getMethod(name, parameterTypes);
+            return Modifier.isStatic(method.getModifiers()) ? null : method;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 单个属性的访问器和文本转换
+     */
+    private static final class Property {
+        private final String name;
+        private final Class<?> type;
+        private final Function<Object, Object> getter;
+        private final BiConsumer<Object, Object> setter;
+
+        private Property(String name, Class<?> type, Function<Object, Object> getter, BiConsumer<Object, Object> setter) {
+            this.name = name;
+            this.type = type;
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        private String format(Object value) {
+            if (value instanceof LocalDateTime) {
+                return NORM_DATETIME.format((LocalDateTime) value);
+            }
+            if (value instanceof String || value instanceof Number || value instanceof Boolean
+                    || value instanceof LocalDate || value instanceof Enum || value instanceof Character) {
+                return value.toString();
+            }
+            return JSONUtil.toJsonStr(value);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Object parse(String text) {
+            if (type == String.class) {
+                return text;
+            } else if (type == Long.class || type == long.class) {
+                return Long.parseLong(text);
+            } else if (type == Integer.class || type == int.class) {
+                return Integer.parseInt(text);
+            } else if (type == Double.class || type == double.class) {
+                return Double.parseDouble(text);
+            } else if (type == Float.class || type == float.class) {
+                return Float.parseFloat(text);
+            } else if (type == Boolean.class || type == boolean.class) {
+                return Boolean.parseBoolean(text);
+            } else if (type == Short.class || type == short.class) {
+                return Short.parseShort(text);
+            } else if (type == Byte.class || type == byte.class) {
+                return Byte.parseByte(text);
+            } else if (type == Character.class || type == char.class) {
+                return text.charAt(0);
+            } else if (type == BigDecimal.class) {
+                return new BigDecimal(text);
+            } else if (type == LocalDateTime.class) {
+                // yyyy-MM-dd HH:mm:ss 与 ISO 格式（yyyy-MM-ddTHH:mm:ss）
+                return text.length() > 10 && text.charAt(10) == 'T'
+                        ? LocalDateTime.parse(text) : LocalDateTime.parse(text, NORM_DATETIME);
+            } else if (type == LocalDate.class) {
+                return LocalDate.parse(text);
+            } else if (type.isEnum()) {
+                return Enum.valueOf((Class<? extends Enum>) type, text);
+            }
+            return JSONUtil.toBean(text, type);
+        }
+    }
+}
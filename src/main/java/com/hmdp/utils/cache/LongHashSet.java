@@ -0,0 +1,127 @@
+package com.hmdp.utils.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * long类型的开放寻址哈希集合，避免装箱，线性探测 + 删除时回移
+ * 容量固定，满时拒绝写入，由调用方决定淘汰策略。
+ * 写入和删除互相同步；查询不加锁：写入只会把空槽填上，不影响并发查询；删除回移期间的查询可能漏掉被移动的元素，
+ * 因此删除前后各递增一次 removals，查询未命中且期间发生过删除时再加锁查一次
+ */
+public class LongHashSet {
+
+    /**
+     * 0表示空槽，写入时值+1，因此不支持 Long.MAX_VALUE
+     */
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final int maxSize;
+    private volatile int size;
+    /**
+     * 删除计数，奇数表示删除进行中
+     */
+    private volatile int removals;
+
+    /**
+     * @param maxSize 最大元素个数，槽位数为其2倍以上的2的幂
+     */
+    public LongHashSet(int maxSize) {
+        int capacity = 16;
+        while (capacity < maxSize * 2) {
+            capacity <<= 1;
+        }
+        this.slots = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return 写入成功或已存在返回true，集合已满返回false
+     */
+    public synchronized boolean add(long value) {
+        long stored = value + 1;
+        int i = indexOf(stored);
+        long slot;
+        while ((slot = slots.get(i)) != 0) {
+            if (slot == stored) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        if (size >= maxSize) {
+            return false;
+        }
+        slots.set(i, stored);
+        size++;
+        return true;
+    }
+
+    public boolean contains(long value) {
+        long stored = value + 1;
+        int version = removals;
+        if ((version & 1) == 0) {
+            boolean found = probe(stored);
+            // 命中一定有效；未命中时确认期间没有删除
+            if (found || removals == version) {
+                return found;
+            }
+        }
+        synchronized (this) {
+            return probe(stored);
+        }
+    }
+
+    public synchronized boolean remove(long value) {
+        long stored = value + 1;
+        int i = indexOf(stored);
+        long slot;
+        while ((slot = slots.get(i)) != stored) {
+            if (slot == 0) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        removals++;
+        // 回移后续同一探测链上的元素，保证查找不中断
+        int hole = i;
+        int j = (i + 1) & mask;
+        while ((slot = slots.get(j)) != 0) {
+            int home = indexOf(slot);
+            // home 不在 (hole, j] 区间内时可以移到 hole
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                slots.set(hole, slot);
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+        slots.set(hole, 0);
+        size--;
+        removals++;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size >= maxSize;
+    }
+
+    private boolean probe(long stored) {
+        int i = indexOf(stored);
+        long slot;
+        while ((slot = slots.get(i)) != 0) {
+            if (slot == stored) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    private int indexOf(long stored) {
+        long h = stored * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,264 @@
+package com.hmdp.utils.cache;
+
+import com.hmdp.properties.CacheProperties;
+import com.hmdp.utils.LuaScriptRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 不存在id的负缓存，替代每个空值一个Redis key的做法
+ * 本地：按key前缀分组的两代 {@link LongHashSet}，每半个TTL轮换一次，条目存活 TTL/2 ~ TTL；
+ * Redis：按key前缀、按TTL分代的bitmap（cache:negative:{前缀}{代号}），id即偏移量，检查当前代和上一代。
+ * 只支持非负整数id，且不超过 maxId，超出的id交由调用方按原方式处理
+ */
+@Slf4j
+@Component
+public class NegativeCache {
+
+    private static final String KEY_PREFIX = "cache:negative:";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final LuaScriptRegistry luaScriptRegistry;
+    private final CacheProperties.Negative properties;
+    private final long ttlMillis;
+    private final Map<String, Generations> local = new ConcurrentHashMap<>();
+
+    private final Counter localHits;
+    private final Counter redisHits;
+
+    public NegativeCache(@Lazy StringRedisTemplate stringRedisTemplate, LuaScriptRegistry luaScriptRegistry,
+                         CacheProperties cacheProperties, MeterRegistry meterRegistry) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.luaScriptRegistry = luaScriptRegistry;
+        this.properties = cacheProperties.getNegative();
+        this.ttlMillis = properties.getTtl() * 1000L;
+        this.localHits = Counter.builder("cache.negative.hits").tag("level", "local").register(meterRegistry);
+        this.redisHits = Counter.builder("cache.negative.hits").tag("level", "redis").register(meterRegistry);
+    }
+
+    /**
+     * id能否放入负缓存
+     */
+    public boolean supports(Object id) {
+        return properties.isEnabled() && toLong(id) >= 0;
+    }
+
+    /**
+     * 仅检查本地
+     */
+    public boolean isMissingLocally(String keyPrefix, Object id) {
+        long value = toLong(id);
+        if (value < 0 || !properties.isEnabled()) {
+            return false;
+        }
+        Generations generations = local.get(keyPrefix);
+        if (generations != null && generations.contains(value)) {
+            localHits.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 先查本地，再查Redis bitmap；Redis命中时回填本地
+     */
+    public boolean isMissing(String keyPrefix, Object id) {
+        if (isMissingLocally(keyPrefix, id)) {
+            return true;
+        }
+        long value = toLong(id);
+        if (value < 0 || !properties.isEnabled()) {
+            return false;
+        }
+        long generation = currentGeneration();
+        byte[] current = redisKey(keyPrefix, generation);
+        byte[] previous = redisKey(keyPrefix, generation - 1);
+        try {
+            List<Object> bits = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.stringCommands().getBit(current, value);
+                connection.stringCommands().getBit(previous, value);
+                return null;
+            });
+            if (Boolean.TRUE.equals(bits.get(0)) || Boolean.TRUE.equals(bits.get(1))) {
+                redisHits.increment();
+                generations(keyPrefix).add(value);
+                return true;
+            }
+        } catch (Exception e) {
+            log.warn("读取负缓存失败，keyPrefix: {}, id: {}", keyPrefix, id, e);
+        }
+        return false;
+    }
+
+    /**
+     * 记录不存在的id
+     */
+    public void markMissing(String keyPrefix, Object id) {
+        markMissingAll(keyPrefix, Collections.singletonList(id));
+    }
+
+    /**
+     * 批量记录不存在的id，一次管道写入；不支持的id忽略
+     */
+    public void markMissingAll(String keyPrefix, Collection<?> ids) {
+        if (!properties.isEnabled() || ids.isEmpty()) {
+            return;
+        }
+        List<Long> values = new ArrayList<>(ids.size());
+        for (Object id : ids) {
+            long value = toLong(id);
+            if (value >= 0) {
+                values.add(value);
+            }
+        }
+        if (values.isEmpty()) {
+            return;
+        }
+        Generations generations = generations(keyPrefix);
+        for (long value : values) {
+            generations.add(value);
+        }
+        byte[] key = redisKey(keyPrefix, currentGeneration());
+        long expireSeconds = ttlMillis * 2 / 1000;
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (long value : values) {
+                    connection.stringCommands().setBit(key, value, true);
+                }
+                connection.keyCommands().expire(key, expireSeconds);
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("写入负缓存失败，keyPrefix: {}", keyPrefix, e);
+        }
+    }
+
+    /**
+     * 数据新增时清除，本地和Redis
+     */
+    public void clear(String keyPrefix, Object id) {
+        long value = toLong(id);
+        if (value < 0 || !properties.isEnabled()) {
+            return;
+        }
+        clearLocal(keyPrefix, id);
+        long generation = currentGeneration();
+        List<String> keys = new ArrayList<>(2);
+        keys.add(KEY_PREFIX + keyPrefix + generation);
+        keys.add(KEY_PREFIX + keyPrefix + (generation - 1));
+        try {
+            // 只清除已存在的bitmap中的位，避免创建没有过期时间的空key
+            luaScriptRegistry.execute(LuaScriptRegistry.NEGATIVE_CLEAR, keys, String.valueOf(value));
+        } catch (Exception e) {
+            log.warn("清除负缓存失败，keyPrefix: {}, id: {}", keyPrefix, id, e);
+        }
+    }
+
+    /**
+     * 仅清除本地，用于其他节点的失效广播
+     */
+    public void clearLocal(String keyPrefix, Object id) {
+        long value = toLong(id);
+        Generations generations = local.get(keyPrefix);
+        if (value >= 0 && generations != null) {
+            generations.remove(value);
+        }
+    }
+
+    private Generations generations(String keyPrefix) {
+        return local.computeIfAbsent(keyPrefix, k -> new Generations(properties.getLocalCapacity(), ttlMillis / 2));
+    }
+
+    private long currentGeneration() {
+        return System.currentTimeMillis() / ttlMillis;
+    }
+
+    private static byte[] redisKey(String keyPrefix, long generation) {
+        return (KEY_PREFIX + keyPrefix + generation).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 转换为bitmap偏移量，不支持时返回-1
+     */
+    private long toLong(Object id) {
+        long value = -1;
+        if (id instanceof Long || id instanceof Integer || id instanceof Short) {
+            value = ((Number) id).longValue();
+        } else if (id instanceof String) {
+            try {
+                value = Long.parseLong((String) id);
+            } catch (NumberFormatException ignored) {
+                // 非数字id不支持
+            }
+        }
+        return value <= properties.getMaxId() ? value : -1;
+    }
+
+    /**
+     * 本地两代集合，按时间或容量轮换
+     */
+    private static final class Generations {
+        private final int capacity;
+        private final long rotateMillis;
+        private volatile LongHashSet current;
+        private volatile LongHashSet previous;
+        private volatile long rotatedAt = System.currentTimeMillis();
+
+        private Generations(int capacity, long rotateMillis) {
+            this.capacity = capacity;
+            this.rotateMillis = rotateMillis;
+            this.current = new LongHashSet(capacity);
+            this.previous = new LongHashSet(capacity);
+        }
+
+        private boolean contains(long id) {
+            rotateIfExpired();
+            return current.contains(id) || previous.contains(id);
+        }
+
+        private void add(long id) {
+            rotateIfExpired();
+            if (!current.add(id)) {
+                // 当前代已满，提前轮换
+                rotate(true);
+                current.add(id);
+            }
+        }
+
+        private void remove(long id) {
+            current.remove(id);
+            previous.remove(id);
+        }
+
+        private void rotateIfExpired() {
+            if (System.currentTimeMillis() - rotatedAt >= rotateMillis) {
+                rotate(false);
+            }
+        }
+
+        private synchronized void rotate(boolean force) {
+            long now = System.currentTimeMillis();
+            if (!force && now - rotatedAt < rotateMillis) {
+                // 其他线程已完成轮换
+                return;
+            }
+            // 两次过期后上一代也已失效
+            previous = now - rotatedAt >= rotateMillis * 2 ? new LongHashSet(capacity) : current;
+            current = new LongHashSet(capacity);
+            rotatedAt = now;
+        }
+    }
+}
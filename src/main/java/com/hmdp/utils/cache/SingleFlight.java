@@ -0,0 +1,83 @@
+package com.hmdp.utils.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 进程内请求合并（single-flight）
+ * 同一个key同一时刻只有一个线程真正执行加载，其余并发调用者共享同一个future的结果
+ */
+public class SingleFlight {
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 真正执行加载的次数
+     */
+    private final LongAdder executed = new LongAdder();
+
+    /**
+     * 被合并（等待他人结果）的次数
+     */
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * 执行加载，key相同的并发调用只会触发一次loader
+     * @param key 合并的key，一般为缓存key
+     * @param loader 加载逻辑
+     * @return 加载结果
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Supplier<T> loader) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            // 已有线程在加载，等待其结果
+            coalesced.increment();
+            return (T) await(existing);
+        }
+
+        executed.increment();
+        try {
+            T value = loader.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            // 加载结束后立即移除，下一次未命中重新发起加载
+            inFlight.remove(key, future);
+        }
+    }
+
+    private Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    public long getExecutedCount() {
+        return executed.sum();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+}
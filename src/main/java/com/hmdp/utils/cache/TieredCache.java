@@ -0,0 +1,360 @@
+package com.hmdp.utils.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.hmdp.config.LocalCacheConfiguration;
+import com.hmdp.utils.CacheClient;
+import com.hmdp.utils.CacheStorageStrategy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 二级缓存：Caffeine本地缓存(L1) + Redis缓存(L2) + 数据库
+ * 读取顺序 L1 -> L2 -> DB，加载结果回填L1，空值以 {@link #NULL_VALUE} 占位缓存到L1
+ * @param <K> id类型
+ * @param <V> 实体类型
+ */
+public class TieredCache<K, V> {
+
+    /**
+     * 本地空值占位，区别于"未缓存"
+     */
+    public static final Object NULL_VALUE = new Object() {
+        @Override
+        public String toString() {
+            return "NULL_VALUE";
+        }
+    };
+
+    private final String name;
+    private final String keyPrefix;
+    private final Cache<String, Object> local;
+    private final boolean cacheNull;
+    private final Function<K, V> loader;
+    private final Function<Collection<K>, Map<K, V>> batchLoader;
+    private final CacheClient cacheClient;
+
+    /**
+     * 本地缓存变更通知，用于广播到其他节点
+     */
+    private volatile Consumer<K> changeListener;
+
+    private TieredCache(Builder<K, V> builder, Cache<String, Object> local,
+                        Function<K, V> loader, Function<Collection<K>, Map<K, V>> batchLoader) {
+        this.name = builder.name;
+        this.keyPrefix = builder.keyPrefix;
+        this.local = local;
+        this.cacheNull = builder.cacheNull;
+        this.loader = loader;
+        this.batchLoader = batchLoader;
+        this.cacheClient = builder.cacheClient;
+    }
+
+    public static <K, V> Builder<K, V> builder(String name) {
+        return new Builder<>(name);
+    }
+
+    /**
+     * 查询，L1未命中时经由L2、数据库加载
+     */
+    @SuppressWarnings("unchecked")
+    public V get(K id) {
+        String key = keyPrefix + id;
+        Object cached = local.getIfPresent(key);
+        if (cached != null) {
+            return cached == NULL_VALUE ? null : (V) cached;
+        }
+        V value = loader.apply(id);
+        putLocal(key, value);
+        return value;
+    }
+
+    /**
+     * 批量查询，L1未命中的id合并为一次L2/数据库批量加载
+     * @return 按入参顺序排列的结果，不存在的id不包含在结果中
+     */
+    @SuppressWarnings("unchecked")
+    public Map<K, V> getAll(Collection<K> ids) {
+        Map<K, V> result = new LinkedHashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return result;
+        }
+        List<K> missing = new ArrayList<>();
+        Map<K, V> hits = new HashMap<>();
+        for (K id : ids) {
+            Object cached = local.getIfPresent(keyPrefix + id);
+            if (cached == null) {
+                missing.add(id);
+            } else if (cached != NULL_VALUE) {
+                hits.put(id, (V) cached);
+            }
+        }
+
+        Map<K, V> loaded = Collections.emptyMap();
+        if (!missing.isEmpty()) {
+            loaded = batchLoader.apply(missing);
+            for (K id : missing) {
+                putLocal(keyPrefix + id, loaded.get(id));
+            }
+        }
+
+        for (K id : ids) {
+            V value = hits.containsKey(id) ? hits.get(id) : loaded.get(id);
+            if (value != null) {
+                result.put(id, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 仅查询本地缓存
+     */
+    @SuppressWarnings("unchecked")
+    public V getIfPresent(K id) {
+        Object cached = local.getIfPresent(keyPrefix + id);
+        return cached == null || cached == NULL_VALUE ? null : (V) cached;
+    }
+
+    /**
+     * 写入本地缓存，并通知其他节点失效旧值
+     */
+    public void put(K id, V value) {
+        local.put(keyPrefix + id, value);
+        if (cacheClient != null) {
+            cacheClient.clearMissing(keyPrefix, id);
+        }
+        fireChange(id);
+    }
+
+    /**
+     * 失效本地缓存和Redis缓存，并通知其他节点
+     */
+    public void invalidate(K id) {
+        local.invalidate(keyPrefix + id);
+        if (cacheClient != null) {
+            cacheClient.delete(keyPrefix + id);
+            cacheClient.clearMissing(keyPrefix, id);
+        }
+        fireChange(id);
+    }
+
+    /**
+     * 仅失效本地缓存，并通知其他节点
+     */
+    public void evictLocal(K id) {
+        local.invalidate(keyPrefix + id);
+        fireChange(id);
+    }
+
+    void setChangeListener(Consumer<K> changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    private void fireChange(K id) {
+        Consumer<K> listener = changeListener;
+        if (listener != null) {
+            listener.accept(id);
+        }
+    }
+
+    private void putLocal(String key, V value) {
+        if (value != null) {
+            local.put(key, value);
+        } else if (cacheNull) {
+            local.put(key, NULL_VALUE);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    public Cache<String, Object> getLocal() {
+        return local;
+    }
+
+    public static class Builder<K, V> {
+        private final String name;
+        private String keyPrefix = "";
+        private Cache<String, Object> localCache;
+        private long maximumSize = 500;
+        private long localTtlSeconds = 120;
+        private long negativeTtlSeconds = 30;
+        private boolean cacheNull = true;
+
+        private CacheClient cacheClient;
+        private Class<V> type;
+        private Long redisTtl = 30L;
+        private TimeUnit redisTtlUnit = TimeUnit.MINUTES;
+        private CacheStorageStrategy strategy = CacheStorageStrategy.STRING;
+        private boolean logicalExpire;
+
+        private Function<K, V> dbFallback;
+        private Function<Collection<K>, Map<K, V>> batchFallback;
+        private Function<K, V> loader;
+        private Consumer<TieredCache<K, V>> onBuild;
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * L1、L2共用的key前缀
+         */
+        public Builder<K, V> keyPrefix(String keyPrefix) {
+            this.keyPrefix = keyPrefix;
+            return this;
+        }
+
+        /**
+         * 使用已有的本地缓存实例，不再按sizing参数创建
+         */
+        public Builder<K, V> localCache(Cache<String, Object> localCache) {
+            this.localCache = localCache;
+            return this;
+        }
+
+        public Builder<K, V> maximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        public Builder<K, V> localTtl(long seconds) {
+            this.localTtlSeconds = seconds;
+            return this;
+        }
+
+        public Builder<K, V> negativeTtl(long seconds) {
+            this.negativeTtlSeconds = seconds;
+            return this;
+        }
+
+        public Builder<K, V> cacheNull(boolean cacheNull) {
+            this.cacheNull = cacheNull;
+            return this;
+        }
+
+        public Builder<K, V> cacheClient(CacheClient cacheClient) {
+            this.cacheClient = cacheClient;
+            return this;
+        }
+
+        public Builder<K, V> redisTtl(Long time, TimeUnit unit) {
+            this.redisTtl = time;
+            this.redisTtlUnit = unit;
+            return this;
+        }
+
+        /**
+         * 以Redis作为L2
+         * @param type 实体类型
+         * @param strategy 存储策略
+         * @param logicalExpire 是否使用逻辑过期（热点数据），否则使用缓存空值的穿透方案
+         */
+        public Builder<K, V> redis(Class<V> type, CacheStorageStrategy strategy, boolean logicalExpire) {
+            this.type = type;
+            this.strategy = strategy;
+            this.logicalExpire = logicalExpire;
+            return this;
+        }
+
+        /**
+         * 数据库查询
+         */
+        public Builder<K, V> dbFallback(Function<K, V> dbFallback) {
+            this.dbFallback = dbFallback;
+            return this;
+        }
+
+        /**
+         * 数据库批量查询，返回 id -> 实体
+         */
+        public Builder<K, V> batchFallback(Function<Collection<K>, Map<K, V>> batchFallback) {
+            this.batchFallback = batchFallback;
+            return this;
+        }
+
+        /**
+         * 自定义L1之后的完整加载逻辑，设置后不再经过CacheClient
+         */
+        public Builder<K, V> loader(Function<K, V> loader) {
+            this.loader = loader;
+            return this;
+        }
+
+        public Builder<K, V> onBuild(Consumer<TieredCache<K, V>> onBuild) {
+            this.onBuild = onBuild;
+            return this;
+        }
+
+        public TieredCache<K, V> build() {
+            Cache<String, Object> local = localCache != null ? localCache
+                    : LocalCacheConfiguration.buildLocalCache(maximumSize, localTtlSeconds, negativeTtlSeconds);
+            TieredCache<K, V> cache = new TieredCache<>(this, local, buildLoader(), buildBatchLoader());
+            if (onBuild != null) {
+                onBuild.accept(cache);
+            }
+            return cache;
+        }
+
+        private Function<K, V> buildLoader() {
+            if (loader != null) {
+                return loader;
+            }
+            if (dbFallback == null) {
+                throw new IllegalStateException("缓存[" + name + "]未配置数据加载方式");
+            }
+            if (type == null || cacheClient == null) {
+                return dbFallback;
+            }
+            if (!logicalExpire) {
+                return id -> cacheClient.queryByIdWithPassThrough(
+                        keyPrefix, id, type, dbFallback, redisTtl, redisTtlUnit, strategy);
+            }
+            // 逻辑过期的L2未预热时返回null，由数据库加载后写回L2，并发未命中经CacheClient合并为一次加载
+            return id -> {
+                V value = cacheClient.queryWithLogicalExpire(
+                        keyPrefix, id, type, dbFallback, redisTtl, redisTtlUnit, strategy);
+                if (value != null || cacheClient.isMissing(keyPrefix, id)) {
+                    return value;
+                }
+                return cacheClient.loadWithLogicalExpire(keyPrefix, id, dbFallback, redisTtl, redisTtlUnit);
+            };
+        }
+
+        private Function<Collection<K>, Map<K, V>> buildBatchLoader() {
+            if (batchFallback != null && type != null && cacheClient != null && !logicalExpire) {
+                return ids -> cacheClient.queryByIds(
+                        keyPrefix, ids, type, batchFallback, redisTtl, redisTtlUnit, strategy);
+            }
+            if (batchFallback != null) {
+                return batchFallback;
+            }
+            // 未配置批量加载时逐个加载
+            Function<K, V> single = buildLoader();
+            return ids -> {
+                Map<K, V> result = new HashMap<>();
+                for (K id : ids) {
+                    V value = single.apply(id);
+                    if (value != null) {
+                        result.put(id, value);
+                    }
+                }
+                return result;
+            };
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.hmdp.utils.cache;
+
+import com.hmdp.properties.CacheProperties;
+import com.hmdp.utils.CacheClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 二级缓存管理，按缓存名称读取 hm.cache.tiers 下的配置创建 {@link TieredCache}
+ */
+@Component
+public class TieredCacheManager {
+
+    private final Map<String, TieredCache<?, ?>> caches = new ConcurrentHashMap<>();
+
+    private final CacheProperties cacheProperties;
+    private final CacheClient cacheClient;
+    private final MeterRegistry meterRegistry;
+
+    private volatile CacheInvalidationBus invalidationBus;
+
+    public TieredCacheManager(CacheProperties cacheProperties, @Lazy CacheClient cacheClient,
+                              MeterRegistry meterRegistry) {
+        this.cacheProperties = cacheProperties;
+        this.cacheClient = cacheClient;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 创建缓存构建器，已按配置设置好本地缓存大小和过期时间
+     * @param name 缓存名称
+     */
+    public <K, V> TieredCache.Builder<K, V> newCache(String name) {
+        CacheProperties.Tier tier = cacheProperties.tier(name);
+        return TieredCache.<K, V>builder(name)
+                .maximumSize(tier.getMaximumSize())
+                .localTtl(tier.getLocalTtl())
+                .negativeTtl(tier.getNegativeTtl())
+                .cacheNull(tier.isCacheNull())
+                .cacheClient(cacheClient)
+                .onBuild(this::register);
+    }
+
+    private void register(TieredCache<?, ?> cache) {
+        if (caches.putIfAbsent(cache.getName(), cache) != null) {
+            throw new IllegalStateException("缓存名称重复: " + cache.getName());
+        }
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.getLocal(), cache.getName());
+        cache.setChangeListener(id -> publish(cache.getName(), id));
+    }
+
+    private void publish(String name, Object id) {
+        CacheInvalidationBus bus = invalidationBus;
+        if (bus != null) {
+            bus.publish(name, id);
+        }
+    }
+
+    /**
+     * 开启跨节点失效广播，由 {@link CacheInvalidationBus} 启动时设置
+     */
+    void setInvalidationBus(CacheInvalidationBus invalidationBus) {
+        this.invalidationBus = invalidationBus;
+    }
+
+    /**
+     * 根据名称获取缓存
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> TieredCache<K, V> getCache(String name) {
+        return (TieredCache<K, V>) caches.get(name);
+    }
+
+    public Collection<TieredCache<?, ?>> getCaches() {
+        return Collections.unmodifiableCollection(caches.values());
+    }
+}
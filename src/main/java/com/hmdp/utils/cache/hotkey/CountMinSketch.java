@@ -0,0 +1,80 @@
+package com.hmdp.utils.cache.hotkey;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Count-Min Sketch 频率估计，固定内存，估计值只会偏大不会偏小
+ * 每个key计算一次64位murmur3哈希，各行下标按 Kirsch-Mitzenmacher 双重哈希 h1 + i * h2 得到，h2取奇数保证各行下标不同；
+ * 只有64位哈希完全相同的key才会在所有行冲突。计数使用原子数组，可并发写入
+ */
+public class CountMinSketch {
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private final int depth;
+    private final int mask;
+    private final AtomicIntegerArray table;
+
+    /**
+     * @param depth 哈希函数个数
+     * @param width 每行计数器个数，向上取整为2的幂
+     */
+    public CountMinSketch(int depth, int width) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("depth必须大于0");
+        }
+        int w = 16;
+        while (w < width) {
+            w <<= 1;
+        }
+        this.depth = depth;
+        this.mask = w - 1;
+        this.table = new AtomicIntegerArray(depth * w);
+    }
+
+    /**
+     * 计数加一，返回加一后的估计值
+     */
+    public int increment(String key) {
+        long hash = hash(key);
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            int value = table.incrementAndGet(index(i, hash));
+            if (value < min) {
+                min = value;
+            }
+        }
+        return min;
+    }
+
+    public int estimate(String key) {
+        long hash = hash(key);
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            int value = table.get(index(i, hash));
+            if (value < min) {
+                min = value;
+            }
+        }
+        return min;
+    }
+
+    public void clear() {
+        for (int i = 0; i < table.length(); i++) {
+            table.set(i, 0);
+        }
+    }
+
+    private int index(int row, long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return row * (mask + 1) + ((h1 + row * h2) & mask);
+    }
+
+    private static long hash(String key) {
+        return HASH.hashUnencodedChars(key).asLong();
+    }
+}
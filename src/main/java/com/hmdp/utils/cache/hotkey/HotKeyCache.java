@@ -0,0 +1,158 @@
+package com.hmdp.utils.cache.hotkey;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.hmdp.properties.CacheProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 热点key本地缓存
+ * CacheClient读路径上的每次访问都交给 {@link HotKeyDetector} 计数，被判定为热点的key自动放入独立的Caffeine区域，
+ * 区域内的数据在短时间后由后台按原查询逻辑刷新（refresh-ahead），key降温后移出。
+ * 空结果不放入热点区域（逻辑过期未预热时也返回空）
+ */
+@Slf4j
+@Component
+public class HotKeyCache {
+
+    private final boolean enabled;
+    private final HotKeyDetector detector;
+    private final LoadingCache<String, HotEntry> region;
+    private final ScheduledExecutorService rotator = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "hot-key-rotator");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public HotKeyCache(CacheProperties cacheProperties, MeterRegistry meterRegistry) {
+        CacheProperties.HotKey config = cacheProperties.getHotKey();
+        this.enabled = config.isEnabled();
+        this.detector = new HotKeyDetector(config.getWindows(), config.getSketchDepth(), config.getSketchWidth(),
+                config.getThreshold(), config.getTopK());
+        this.region = Caffeine.newBuilder()
+                .maximumSize(config.getTopK())
+                .refreshAfterWrite(config.getRefreshAfter(), TimeUnit.MILLISECONDS)
+                .expireAfterWrite(config.getExpireAfter(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build(new CacheLoader<String, HotEntry>() {
+                    @Override
+                    public HotEntry load(String key) {
+                        // 只通过put写入，不会直接加载
+                        return null;
+                    }
+
+                    @Override
+                    public HotEntry reload(String key, HotEntry oldValue) {
+                        return oldValue.reload();
+                    }
+                });
+        CaffeineCacheMetrics.monitor(meterRegistry, region, "hot-key");
+        Gauge.builder("cache.hot-key.count", detector, d -> d.snapshot().size())
+                .register(meterRegistry);
+        if (enabled) {
+            rotator.scheduleAtFixedRate(this::rotate, config.getWindowSeconds(), config.getWindowSeconds(), TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 查询，记录访问频率；热点key优先从本地区域读取，未命中时执行loader，结果为热点时放入本地区域
+     * @param loader 原查询逻辑，同时用作后台刷新
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<T> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        boolean hot = detector.record(key);
+        HotEntry entry = region.getIfPresent(key);
+        if (entry != null) {
+            if (hot) {
+                return (T) entry.value;
+            }
+            // 已降温或被其他热点key挤出
+            region.invalidate(key);
+        }
+        T value = loader.get();
+        if (hot && value != null) {
+            region.put(key, new HotEntry(value, loader));
+        }
+        return value;
+    }
+
+    /**
+     * 只记录访问频率，用于批量查询等不经过热点区域的读路径
+     */
+    public void record(String key) {
+        if (enabled) {
+            detector.record(key);
+        }
+    }
+
+    /**
+     * 数据变更时移出本地区域
+     */
+    public void invalidate(String key) {
+        region.invalidate(key);
+    }
+
+    /**
+     * 当前热点key快照，按频率降序
+     */
+    public List<Map.Entry<String, Integer>> hotKeys() {
+        return detector.snapshot();
+    }
+
+    public boolean isCached(String key) {
+        return region.getIfPresent(key) != null;
+    }
+
+    public int getThreshold() {
+        return detector.getThreshold();
+    }
+
+    private void rotate() {
+        try {
+            for (String key : detector.rotate()) {
+                region.invalidate(key);
+            }
+        } catch (Exception e) {
+            log.error("热点key窗口滚动失败", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rotator.shutdown();
+    }
+
+    private static final class HotEntry {
+        private final Object value;
+        private final Supplier<?> loader;
+
+        private HotEntry(Object value, Supplier<?> loader) {
+            this.value = value;
+            this.loader = loader;
+        }
+
+        /**
+         * 刷新结果为空时返回null，Caffeine会移除该条目
+         */
+        private HotEntry reload() {
+            Object value = loader.get();
+            return value == null ? null : new HotEntry(value, loader);
+        }
+    }
+}
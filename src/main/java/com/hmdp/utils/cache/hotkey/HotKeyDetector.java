@@ -0,0 +1,153 @@
+package com.hmdp.utils.cache.hotkey;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 滑动窗口热点key探测
+ * 每个时间窗口一个 {@link CountMinSketch}，key的访问频率为所有窗口估计值之和；
+ * 频率达到阈值的key进入top-K候选集，窗口滚动时重新评估，跌破阈值的key移出
+ */
+public class HotKeyDetector {
+
+    private final CountMinSketch[] windows;
+    private final int threshold;
+    private final int topK;
+    private volatile int current;
+
+    /**
+     * 当前热点key及其频率估计
+     */
+    private final Map<String, Integer> hotKeys = new ConcurrentHashMap<>();
+
+    /**
+     * top-K已满时集合中的最低频率，未满时为0；只在持有锁时更新，读取不加锁
+     */
+    private volatile int minFrequency;
+
+    /**
+     * @param windowCount 滑动窗口个数
+     * @param depth sketch哈希函数个数
+     * @param width sketch每行宽度
+     * @param threshold 整个滑动窗口内的访问次数阈值
+     * @param topK 最多保留的热点key个数
+     */
+    public HotKeyDetector(int windowCount, int depth, int width, int threshold, int topK) {
+        this.windows = new CountMinSketch[windowCount];
+        for (int i = 0; i < windowCount; i++) {
+            windows[i] = new CountMinSketch(depth, width);
+        }
+        this.threshold = threshold;
+        this.topK = topK;
+    }
+
+    /**
+     * 记录一次访问
+     * @return 该key当前是否为热点
+     */
+    public boolean record(String key) {
+        windows[current].increment(key);
+        if (hotKeys.containsKey(key)) {
+            return true;
+        }
+        int frequency = estimate(key);
+        // 已满且不高于最低频率时无法替换，不必进入同步块
+        if (frequency < threshold || frequency <= minFrequency) {
+            return false;
+        }
+        return admit(key, frequency);
+    }
+
+    public boolean isHot(String key) {
+        return hotKeys.containsKey(key);
+    }
+
+    /**
+     * 整个滑动窗口内的访问次数估计
+     */
+    public int estimate(String key) {
+        int sum = 0;
+        for (CountMinSketch window : windows) {
+            sum += window.estimate(key);
+        }
+        return sum;
+    }
+
+    /**
+     * 滚动到下一个窗口，清空最旧的窗口并重新评估热点key
+     * @return 被移出热点集的key
+     */
+    public synchronized List<String> rotate() {
+        int next = (current + 1) % windows.length;
+        windows[next].clear();
+        current = next;
+        List<String> demoted = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : hotKeys.entrySet()) {
+            int frequency = estimate(entry.getKey());
+            if (frequency < threshold) {
+                hotKeys.remove(entry.getKey());
+                demoted.add(entry.getKey());
+            } else {
+                entry.setValue(frequency);
+            }
+        }
+        refreshMinFrequency();
+        return demoted;
+    }
+
+    /**
+     * 当前热点key，按频率降序
+     */
+    public List<Map.Entry<String, Integer>> snapshot() {
+        List<Map.Entry<String, Integer>> list = new ArrayList<>(hotKeys.entrySet());
+        list.sort(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()));
+        return list;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    private synchronized boolean admit(String key, int frequency) {
+        if (hotKeys.containsKey(key)) {
+            return true;
+        }
+        if (hotKeys.size() < topK) {
+            hotKeys.put(key, frequency);
+            refreshMinFrequency();
+            return true;
+        }
+        // 已满时替换频率最低的key
+        Map.Entry<String, Integer> min = null;
+        for (Map.Entry<String, Integer> entry : hotKeys.entrySet()) {
+            if (min == null || entry.getValue() < min.getValue()) {
+                min = entry;
+            }
+        }
+        if (min != null && min.getValue() < frequency) {
+            hotKeys.remove(min.getKey());
+            hotKeys.put(key, frequency);
+            refreshMinFrequency();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 重新计算最低频率，调用方需持有锁
+     */
+    private void refreshMinFrequency() {
+        if (hotKeys.size() < topK) {
+            minFrequency = 0;
+            return;
+        }
+        int min = Integer.MAX_VALUE;
+        for (int frequency : hotKeys.values()) {
+            min = Math.min(min, frequency);
+        }
+        minFrequency = min;
+    }
+}
@@ -0,0 +1,40 @@
+package com.hmdp.utils.cache.hotkey;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 热点key查看：GET /actuator/hotkeys
+ */
+@Component
+@Endpoint(id = "hotkeys")
+public class HotKeyEndpoint {
+
+    private final HotKeyCache hotKeyCache;
+
+    public HotKeyEndpoint(HotKeyCache hotKeyCache) {
+        this.hotKeyCache = hotKeyCache;
+    }
+
+    @ReadOperation
+    public Map<String, Object> hotKeys() {
+        List<Map<String, Object>> keys = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : hotKeyCache.hotKeys()) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("key", entry.getKey());
+            item.put("frequency", entry.getValue());
+            item.put("cached", hotKeyCache.isCached(entry.getKey()));
+            keys.add(item);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("threshold", hotKeyCache.getThreshold());
+        result.put("keys", keys);
+        return result;
+    }
+}
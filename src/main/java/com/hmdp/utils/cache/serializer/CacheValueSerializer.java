@@ -0,0 +1,22 @@
+package com.hmdp.utils.cache.serializer;
+
+/**
+ * 缓存值序列化SPI，用于逻辑过期缓存的二进制存储
+ * 每个实现有唯一的 {@link #id()}，写入缓存条目头部，读取时按id选择对应实现，切换实现后旧数据仍可读取
+ */
+public interface CacheValueSerializer {
+
+    /**
+     * 序列化格式标识，写入缓存条目头部，不可与其他实现重复
+     */
+    byte id();
+
+    /**
+     * 配置中使用的名称，对应 hm.cache.serializer
+     */
+    String name();
+
+    byte[] serialize(Object value);
+
+    <T> T deserialize(byte[] bytes, int offset, int length, Class<T> type);
+}
@@ -0,0 +1,42 @@
+package com.hmdp.utils.cache.serializer;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+
+/**
+ * 基于Jackson的序列化实现，时间类型按数组形式写入，忽略空字段
+ */
+public abstract class JacksonCacheValueSerializer implements CacheValueSerializer {
+
+    private final ObjectMapper mapper;
+
+    protected JacksonCacheValueSerializer(JsonFactory factory) {
+        this.mapper = new ObjectMapper(factory)
+                .registerModule(new JavaTimeModule())
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    @Override
+    public byte[] serialize(Object value) {
+        try {
+            return mapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new IllegalStateException("缓存序列化失败: " + value.getClass().getName(), e);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(byte[] bytes, int offset, int length, Class<T> type) {
+        try {
+            return mapper.readValue(bytes, offset, length, type);
+        } catch (IOException e) {
+            throw new IllegalStateException("缓存反序列化失败: " + type.getName(), e);
+        }
+    }
+}
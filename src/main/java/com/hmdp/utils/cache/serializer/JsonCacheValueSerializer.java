@@ -0,0 +1,25 @@
+package com.hmdp.utils.cache.serializer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * JSON文本格式，便于在redis-cli中直接查看
+ */
+@Component
+public class JsonCacheValueSerializer extends JacksonCacheValueSerializer {
+
+    public JsonCacheValueSerializer() {
+        super(new JsonFactory());
+    }
+
+    @Override
+    public byte id() {
+        return 1;
+    }
+
+    @Override
+    public String name() {
+        return "json";
+    }
+}
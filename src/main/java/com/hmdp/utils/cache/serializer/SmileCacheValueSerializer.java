@@ -0,0 +1,28 @@
+package com.hmdp.utils.cache.serializer;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Smile二进制格式，数值按变长编码、重复的字段名只写一次，体积和解析开销都小于JSON
+ */
+@Component
+public class SmileCacheValueSerializer extends JacksonCacheValueSerializer {
+
+    public SmileCacheValueSerializer() {
+        super(SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_NAMES)
+                .build());
+    }
+
+    @Override
+    public byte id() {
+        return 2;
+    }
+
+    @Override
+    public String name() {
+        return "smile";
+    }
+}
@@ -15,10 +15,24 @@ public class RedisConstants {
 
     public static final String CACHE_SHOP_TYPE_KEY = "cache:shop:type:";
 
+    public static final String CACHE_USER_KEY = "cache:user:";
+    public static final Long CACHE_USER_TTL = 30L;
+
+    public static final String CACHE_BLOG_KEY = "cache:blog:";
+    public static final Long CACHE_BLOG_TTL = 30L;
+
+    public static final String CACHE_SECKILL_VOUCHER_KEY = "cache:seckill:voucher:";
+    public static final Long CACHE_SECKILL_VOUCHER_TTL = 10L;
+
     public static final String LOCK_SHOP_KEY = "lock:shop:";
     public static final Long LOCK_SHOP_TTL = 10L;
+    // 缓存重建锁，后接完整的缓存key
+    public static final String LOCK_CACHE_KEY = "lock:";
 
     public static final String SECKILL_STOCK_KEY = "seckill:stock:";
+    public static final String SECKILL_ORDER_KEY = "seckill:order:";
+    public static final String SECKILL_SHARDS_KEY = "seckill:shards:";
+    public static final String SECKILL_ORDER_STATUS_KEY = "seckill:status:";
     public static final String BLOG_LIKED_KEY = "blog:liked:";
     public static final String FEED_KEY = "feed:";
     public static final String SHOP_GEO_KEY = "shop:geo:";
@@ -0,0 +1,139 @@
+package com.hmdp.utils.consumer;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.hmdp.properties.SeckillProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单消费的自适应调节
+ * 周期性读取下单事务耗时p99和订单积压量，按 {@link AimdLimit} 调整消费者并发数、预取数和限流速率。
+ * RabbitMQ投递时积压量取 order.queue 消息数；Redis Stream投递时订单确认后即删除，积压量取订单流长度，
+ * 即消费组未读取与已读取未确认的订单数之和，此时只调整限流速率。预取数只对调整后新建的消费者生效
+ */
+@Slf4j
+@Component
+public class AdaptiveOrderController {
+
+    public static final String QUEUE = "order.queue";
+    public static final String SINGLE_LISTENER_ID = "orderConsumer";
+    public static final String BATCH_LISTENER_ID = "batchOrderConsumer";
+    private static final String STREAM_TRANSPORT = "redis-stream";
+    /**
+     * 逐条消费时的初始并发数，与 OrderConsumer 的注解一致
+     */
+    private static final int SINGLE_CONSUMERS = 5;
+
+    private final RabbitListenerEndpointRegistry listenerRegistry;
+    private final AmqpAdmin amqpAdmin;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RateLimiter rateLimiter;
+    private final SeckillProperties.OrderAdaptive properties;
+    private final String listenerId;
+    /**
+     * Redis Stream投递时的订单流key，RabbitMQ投递时为null
+     */
+    private final String streamKey;
+    private final AimdLimit limit;
+
+    private final Timer transactionTimer;
+    private volatile double lastP99;
+    private volatile long lastBacklog;
+
+    public AdaptiveOrderController(RabbitListenerEndpointRegistry listenerRegistry, AmqpAdmin amqpAdmin,
+                                   StringRedisTemplate stringRedisTemplate, RateLimiter rateLimiter,
+                                   SeckillProperties seckillProperties, MeterRegistry meterRegistry) {
+        this.listenerRegistry = listenerRegistry;
+        this.amqpAdmin = amqpAdmin;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.streamKey = STREAM_TRANSPORT.equals(seckillProperties.getTransport())
+                ? seckillProperties.getOrderStream().getKey() : null;
+        this.rateLimiter = rateLimiter;
+        this.properties = seckillProperties.getOrderAdaptive();
+        SeckillProperties.OrderBatch batch = seckillProperties.getOrderBatch();
+        this.listenerId = batch.isEnabled() ? BATCH_LISTENER_ID : SINGLE_LISTENER_ID;
+        // 批量消费时预取数不能小于批大小
+        this.limit = new AimdLimit(properties, rateLimiter.getRate(),
+                batch.isEnabled() ? batch.getConsumers() : SINGLE_CONSUMERS,
+                batch.isEnabled() ? batch.getSize() : 1);
+
+        // 统计窗口约为1~2个调节周期
+        this.transactionTimer = Timer.builder("order.transaction.latency")
+                .description("下单事务耗时")
+                .publishPercentiles(0.99)
+                .distributionStatisticExpiry(Duration.ofMillis(properties.getInterval()))
+                .distributionStatisticBufferLength(2)
+                .register(meterRegistry);
+        Gauge.builder("order.adaptive.concurrency", limit, AimdLimit::getConcurrency).register(meterRegistry);
+        Gauge.builder("order.adaptive.prefetch", limit, AimdLimit::getPrefetch).register(meterRegistry);
+        Gauge.builder("order.adaptive.rate", limit, AimdLimit::getRate).register(meterRegistry);
+        Gauge.builder("order.adaptive.backlog", this, c -> c.lastBacklog).register(meterRegistry);
+        Gauge.builder("order.adaptive.p99", this, c -> c.lastP99)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 下单事务计时，消费者用它包裹数据库操作
+     */
+    public Timer getTransactionTimer() {
+        return transactionTimer;
+    }
+
+    @Scheduled(fixedDelayString = "${hm.seckill.order-adaptive.interval:5000}")
+    public void adjust() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        lastP99 = currentP99();
+        lastBacklog = currentBacklog();
+        if (!limit.update(lastP99, lastBacklog)) {
+            return;
+        }
+        rateLimiter.setRate(limit.getRate());
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(listenerId);
+        if (container instanceof SimpleMessageListenerContainer) {
+            SimpleMessageListenerContainer simple = (SimpleMessageListenerContainer) container;
+            simple.setPrefetchCount(limit.getPrefetch());
+            simple.setConcurrentConsumers(limit.getConcurrency());
+        }
+        log.info("订单消费参数调整: p99={}ms, backlog={}, concurrency={}, prefetch={}, rate={}",
+                String.format("%.1f", lastP99), lastBacklog, limit.getConcurrency(), limit.getPrefetch(),
+                String.format("%.1f", limit.getRate()));
+    }
+
+    private double currentP99() {
+        for (ValueAtPercentile percentile : transactionTimer.takeSnapshot().percentileValues()) {
+            return percentile.value(TimeUnit.MILLISECONDS);
+        }
+        return 0;
+    }
+
+    private long currentBacklog() {
+        try {
+            if (streamKey != null) {
+                Long size = stringRedisTemplate.opsForStream().size(streamKey);
+                return size == null ? 0 : size;
+            }
+            QueueInformation info = amqpAdmin.getQueueInfo(QUEUE);
+            return info == null ? 0 : info.getMessageCount();
+        } catch (Exception e) {
+            log.warn("读取订单队列积压失败", e);
+            return lastBacklog;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.hmdp.utils.consumer;
+
+import com.hmdp.properties.SeckillProperties;
+
+/**
+ * 加性增、乘性减(AIMD)的消费能力估算
+ * 事务耗时p99超过目标时速率和并发乘性减小；耗时正常且队列积压时加性增大；其余情况保持不变。
+ * 预取数按每个消费者约1秒的处理量估算
+ */
+public class AimdLimit {
+
+    private final SeckillProperties.OrderAdaptive properties;
+    private final int minPrefetch;
+
+    private volatile double rate;
+    private volatile int concurrency;
+    private volatile int prefetch;
+
+    public AimdLimit(SeckillProperties.OrderAdaptive properties, double initialRate,
+                     int initialConcurrency, int minPrefetch) {
+        this.properties = properties;
+        this.minPrefetch = minPrefetch;
+        this.rate = clamp(initialRate, properties.getMinRate(), properties.getMaxRate());
+        this.concurrency = (int) clamp(initialConcurrency, properties.getMinConcurrency(), properties.getMaxConcurrency());
+        this.prefetch = prefetchFor(rate, concurrency);
+    }
+
+    /**
+     * 按最近一个周期的观测值调节
+     * @param p99Millis 下单事务耗时p99(毫秒)，没有样本时传0
+     * @param backlog 队列积压消息数
+     * @return 是否发生变化
+     */
+    public synchronized boolean update(double p99Millis, long backlog) {
+        double newRate = rate;
+        int newConcurrency = concurrency;
+        if (p99Millis > properties.getTargetP99()) {
+            newRate = rate * properties.getDecreaseFactor();
+            newConcurrency = (int) Math.floor(concurrency * properties.getDecreaseFactor());
+        } else if (backlog > properties.getBacklogThreshold()) {
+            newRate = rate + properties.getIncreaseStep();
+            newConcurrency = concurrency + 1;
+        }
+        newRate = clamp(newRate, properties.getMinRate(), properties.getMaxRate());
+        newConcurrency = (int) clamp(newConcurrency, properties.getMinConcurrency(), properties.getMaxConcurrency());
+        boolean changed = newRate != rate || newConcurrency != concurrency;
+        rate = newRate;
+        concurrency = newConcurrency;
+        prefetch = prefetchFor(newRate, newConcurrency);
+        return changed;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getPrefetch() {
+        return prefetch;
+    }
+
+    private int prefetchFor(double rate, int concurrency) {
+        int perConsumer = (int) Math.ceil(rate / concurrency);
+        return (int) clamp(perConsumer, minPrefetch, Math.max(minPrefetch, properties.getMaxPrefetch()));
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
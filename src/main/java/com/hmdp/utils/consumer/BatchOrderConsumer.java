@@ -0,0 +1,88 @@
+package com.hmdp.utils.consumer;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.hmdp.utils.message.OrderMessage;
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量订单消费者，hm.seckill.transport=rabbit 且 hm.seckill.order-batch.enabled=true 时替代 {@link OrderConsumer}
+ * 一批消息按优惠券分组，每组一次去重查询、一次扣减库存、一次多行插入，最后一次确认整批消息
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("'${hm.seckill.transport:rabbit}' == 'rabbit' and ${hm.seckill.order-batch.enabled:false}")
+public class BatchOrderConsumer {
+
+    @Autowired
+    private OrderBatchProcessor orderBatchProcessor;
+
+    @Autowired
+    private MessageConverter messageConverter;
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private OrderRetryPublisher orderRetryPublisher;
+
+    @RabbitListener(id = AdaptiveOrderController.BATCH_LISTENER_ID, queues = "order.queue",
+            containerFactory = "batchRabbitListenerContainerFactory")
+    public void handleMessages(List<Message> messages, Channel channel) throws IOException {
+        if (messages.isEmpty()) {
+            return;
+        }
+        long lastTag = messages.get(messages.size() - 1).getMessageProperties().getDeliveryTag();
+        // 限流按批计算，控制数据库事务数而不是订单数
+        rateLimiter.acquire();
+
+        // 按优惠券分组，同一批内同一用户只保留一条
+        Map<Long, Map<Long, Long>> groups = new LinkedHashMap<>();
+        for (Message message : messages) {
+            Object msg;
+            try {
+                msg = messageConverter.fromMessage(message);
+            } catch (Exception e) {
+                log.warn("无法解析的订单消息，丢弃: {}", message, e);
+                continue;
+            }
+            if (!(msg instanceof OrderMessage)) {
+                log.warn("未知消息类型: {}", msg == null ? null : msg.getClass().getName());
+                continue;
+            }
+            OrderMessage order = (OrderMessage) msg;
+            groups.computeIfAbsent(order.getVoucherId(), k -> new LinkedHashMap<>())
+                    .putIfAbsent(order.getUserId(), order.getOrderId());
+        }
+
+        try {
+            int created = orderBatchProcessor.process(groups);
+            // 一次确认整批消息
+            channel.basicAck(lastTag, true);
+            log.info("批量订单处理完成: 消息数={}, 创建订单数={}", messages.size(), created);
+        } catch (Exception e) {
+            // 逐条投递到延迟重试队列，已提交的优惠券分组在重新投递后会被去重查询过滤
+            log.error("批量下单失败，整批延迟重试: 消息数={}", messages.size(), e);
+            try {
+                for (Message message : messages) {
+                    orderRetryPublisher.retryOrDeadLetter(message);
+                }
+                channel.basicAck(lastTag, true);
+            } catch (Exception retryException) {
+                log.error("投递重试消息失败，整批重新入队: 消息数={}", messages.size(), retryException);
+                channel.basicNack(lastTag, true, true);
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.hmdp.utils.consumer;
+
+import com.hmdp.entity.SeckillVoucher;
+import com.hmdp.service.IVoucherOrderService;
+import com.hmdp.utils.cache.TieredCache;
+import com.hmdp.utils.cache.TieredCacheManager;
+import com.hmdp.utils.seckill.OrderCompensator;
+import com.hmdp.utils.seckill.OrderStatusCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 按优惠券分组批量下单，RabbitMQ批量消费者和Redis Stream消费者共用
+ */
+@Slf4j
+@Component
+public class OrderBatchProcessor {
+
+    private final IVoucherOrderService orderService;
+    private final TieredCacheManager tieredCacheManager;
+    private final AdaptiveOrderController adaptiveOrderController;
+    private final OrderStatusCache orderStatusCache;
+    private final OrderCompensator orderCompensator;
+
+    public OrderBatchProcessor(IVoucherOrderService orderService, TieredCacheManager tieredCacheManager,
+                               AdaptiveOrderController adaptiveOrderController, OrderStatusCache orderStatusCache,
+                               OrderCompensator orderCompensator) {
+        this.orderService = orderService;
+        this.tieredCacheManager = tieredCacheManager;
+        this.adaptiveOrderController = adaptiveOrderController;
+        this.orderStatusCache = orderStatusCache;
+        this.orderCompensator = orderCompensator;
+    }
+
+    /**
+     * 每组一次去重查询、一次扣减库存、一次多行插入；不在有效期内的分组直接跳过。
+     * 处理完成后批量更新成功订单的状态；秒杀券无效时未能下单的用户归还库存，数据库库存耗尽时只标记失败和售罄
+     * @param groups 优惠券id -> (下单用户id -> 预先生成的订单id)
+     * @return 已持有订单的用户数
+     */
+    public int process(Map<Long, Map<Long, Long>> groups) {
+        TieredCache<Long, SeckillVoucher> seckillVoucherCache = tieredCacheManager.getCache("seckill-voucher");
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, OrderStatusCache.Status> statuses = new HashMap<>();
+        int created = 0;
+        for (Map.Entry<Long, Map<Long, Long>> group : groups.entrySet()) {
+            SeckillVoucher voucher = seckillVoucherCache.get(group.getKey());
+            Set<Long> ordered;
+            boolean rejected = voucher == null || voucher.getBeginTime().isAfter(now) || voucher.getEndTime().isBefore(now);
+            if (rejected) {
+                log.warn("秒杀券不存在或不在有效期内，拒绝处理订单: voucherId={}, userIds={}",
+                        group.getKey(), group.getValue().keySet());
+                ordered = Collections.emptySet();
+            } else {
+                // 记录事务耗时，供自适应调节使用
+                ordered = adaptiveOrderController.getTransactionTimer()
+                        .record(() -> orderService.createVoucherOrders(group.getKey(), group.getValue()));
+            }
+            created += ordered.size();
+            Long voucherId = group.getKey();
+            group.getValue().forEach((userId, orderId) -> {
+                if (ordered.contains(userId)) {
+                    statuses.put(orderId, OrderStatusCache.Status.SUCCESS);
+                } else if (rejected) {
+                    orderCompensator.compensate(orderId, userId, voucherId);
+                } else {
+                    // 数据库库存已耗尽，不归还Redis库存
+                    orderCompensator.compensateSoldOut(orderId, userId, voucherId);
+                }
+            });
+        }
+        orderStatusCache.update(statuses);
+        return created;
+    }
+}
@@ -1,17 +1,21 @@
 package com.hmdp.utils.consumer;
 
 import com.hmdp.entity.SeckillVoucher;
-import com.hmdp.service.ISeckillVoucherService;
 import com.hmdp.service.IVoucherOrderService;
+import com.hmdp.utils.cache.TieredCache;
+import com.hmdp.utils.cache.TieredCacheManager;
 
 import com.hmdp.utils.message.OrderMessage;
+import com.hmdp.utils.seckill.OrderCompensator;
+import com.hmdp.utils.seckill.OrderStatusCache;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Component;
 
 import com.google.common.util.concurrent.RateLimiter;
@@ -20,29 +24,51 @@ import java.io.IOException;
 
 @Slf4j
 @Component
+@ConditionalOnExpression("'${hm.seckill.transport:rabbit}' == 'rabbit' and !${hm.seckill.order-batch.enabled:false}")
 public class OrderConsumer {
 
     @Autowired
     private IVoucherOrderService orderService;
 
     @Autowired
-    private ISeckillVoucherService seckillVoucherService;
+    private TieredCacheManager tieredCacheManager;
 
     @Autowired
     private RabbitTemplate rabbitTemplate;
     
     @Autowired
-    private StringRedisTemplate stringRedisTemplate;
+    private OrderRetryPublisher orderRetryPublisher;
     
     @Autowired
-    private RateLimiter rateLimiter; // 注入限流器
+    private RateLimiter rateLimiter; // 注入限流器，速率由 AdaptiveOrderController 调节
 
-    @RabbitListener(queues = "order.queue", concurrency = "5")
-    public void handleMessage(Object msg, Channel channel, Message message) throws IOException {
+    @Autowired
+    private AdaptiveOrderController adaptiveOrderController;
+
+    @Autowired
+    private OrderStatusCache orderStatusCache;
+
+    @Autowired
+    private MessageConverter messageConverter;
+
+    @Autowired
+    private OrderCompensator orderCompensator;
+
+    @RabbitListener(id = AdaptiveOrderController.SINGLE_LISTENER_ID, queues = "order.queue", concurrency = "5")
+    public void handleMessage(Message message, Channel channel) throws IOException {
+        // 按 __TypeId__ 消息头转换；参数声明为Object时推断类型也是Object，消息体会被转成Map
+        Object msg;
+        try {
+            msg = messageConverter.fromMessage(message);
+        } catch (Exception e) {
+            log.warn("无法解析的订单消息，丢弃: {}", message, e);
+            channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
+            return;
+        }
         if (msg instanceof OrderMessage) {
             handleOrderMessage((OrderMessage) msg, channel, message);
         }else {
-            log.warn("未知消息类型: {}", msg.getClass().getName());
+            log.warn("未知消息类型: {}", msg == null ? null : msg.getClass().getName());
             channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
         }
     }
@@ -52,10 +78,12 @@ public class OrderConsumer {
         rateLimiter.acquire();
         
         try {
-            // 先检查秒杀券是否还有效以及是否有库存
-            SeckillVoucher voucher = seckillVoucherService.getById(msg.getVoucherId());
+            // 先检查秒杀券是否还有效，秒杀券信息走多级缓存
+            TieredCache<Long, SeckillVoucher> seckillVoucherCache = tieredCacheManager.getCache("seckill-voucher");
+            SeckillVoucher voucher = seckillVoucherCache.get(msg.getVoucherId());
             if (voucher == null) {
                 log.warn("秒杀券已不存在，拒绝处理订单: userId={}, voucherId={}", msg.getUserId(), msg.getVoucherId());
+                orderCompensator.compensate(msg.getOrderId(), msg.getUserId(), msg.getVoucherId());
                 // 直接确认消息，不再重新入队
                 channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
                 return;
@@ -64,6 +92,7 @@ public class OrderConsumer {
             // 检查是否在有效期内
             if (voucher.getBeginTime().isAfter(java.time.LocalDateTime.now())) {
                 log.warn("秒杀券尚未开始，拒绝处理订单: userId={}, voucherId={}", msg.getUserId(), msg.getVoucherId());
+                orderCompensator.compensate(msg.getOrderId(), msg.getUserId(), msg.getVoucherId());
                 // 直接确认消息，不再重新入队
                 channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
                 return;
@@ -71,72 +100,38 @@ public class OrderConsumer {
 
             if (voucher.getEndTime().isBefore(java.time.LocalDateTime.now())) {
                 log.warn("秒杀券已结束，拒绝处理订单: userId={}, voucherId={}", msg.getUserId(), msg.getVoucherId());
+                orderCompensator.compensate(msg.getOrderId(), msg.getUserId(), msg.getVoucherId());
                 // 直接确认消息，不再重新入队
                 channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
                 return;
             }
 
-            // 检查库存
-            if (voucher.getStock() <= 0) {
-                log.warn("秒杀券库存不足，拒绝处理订单: userId={}, voucherId={}", msg.getUserId(), msg.getVoucherId());
-                // 直接确认消息，不再重新入队
-                channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
-                return;
-            }
-
-            // 添加重试机制
-            int maxRetries = 3;
-            boolean success = false;
-            Exception lastException = null;
-            for (int i = 0; i < maxRetries && !success; i++) {
-                try {
-                    orderService.createVoucherOrder(msg.getUserId(), msg.getVoucherId());
-                    success = true;
-                } catch (Exception e) {
-                    lastException = e;
-                    if (i == maxRetries - 1) {
-                        // 最后一次重试仍然失败
-                        break;
-                    }
-                    // 等待一段时间后重试
-                    try {
-                        Thread.sleep(1000 * (i + 1));
-                    } catch (InterruptedException ex) {
-                        Thread.currentThread().interrupt();
-                        throw new RuntimeException("线程中断", ex);
-                    }
-                }
-            }
+            // 库存以数据库扣减结果为准，缓存中的库存不可靠，不在此检查
 
-            if (!success) {
-                // 所有重试都失败了
-                throw lastException;
+            // 失败时不在消费线程中等待重试，由延迟队列重新投递
+            boolean ordered = adaptiveOrderController.getTransactionTimer().record(() ->
+                    orderService.createVoucherOrder(msg.getOrderId(), msg.getUserId(), msg.getVoucherId()));
+            if (ordered) {
+                orderStatusCache.update(msg.getOrderId(), OrderStatusCache.Status.SUCCESS);
+            } else {
+                // 数据库库存已耗尽，订单不会再创建，不归还Redis库存
+                orderCompensator.compensateSoldOut(msg.getOrderId(), msg.getUserId(), msg.getVoucherId());
             }
 
             // 手动确认消息
             channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
             log.info("订单处理成功: userId={}, voucherId={}", msg.getUserId(), msg.getVoucherId());
         } catch (Exception e) {
-            // 记录日志，做补偿措施
             log.error("下单失败: userId={}, voucherId={}", msg.getUserId(), msg.getVoucherId(), e);
-            
-            // 补偿：恢复Redis库存
             try {
-                stringRedisTemplate.opsForValue().increment(
-                    "seckill:stock:" + msg.getVoucherId(), 1);
-                log.info("已恢复Redis库存: userId={}, voucherId={}", 
-                    msg.getUserId(), msg.getVoucherId());
-            } catch (Exception redisException) {
-                log.error("恢复Redis库存失败: userId={}, voucherId={}", 
-                    msg.getUserId(), msg.getVoucherId(), redisException);
-            }
-            
-            try {
-                // 拒绝消息并重新入队（最多重新入队一次）
+                // 投递到延迟重试队列（重试用尽则进入死信队列并恢复库存），再确认原消息
+                orderRetryPublisher.retryOrDeadLetter(message);
+                channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
+            } catch (Exception retryException) {
+                log.error("投递重试消息失败，重新入队: userId={}, voucherId={}",
+                        msg.getUserId(), msg.getVoucherId(), retryException);
                 channel.basicNack(message.getMessageProperties().getDeliveryTag(), false, true);
-            } catch (IOException ioException) {
-                log.error("确认消息失败", ioException);
             }
         }
-        }
-}
\ No newline at end of file
+    }
+}
@@ -0,0 +1,126 @@
+package com.hmdp.utils.consumer;
+
+import com.hmdp.properties.SeckillProperties;
+import com.hmdp.utils.message.OrderMessage;
+import com.hmdp.utils.seckill.OrderCompensator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 下单失败消息的延迟重试
+ * 按消息头中的重试次数投递到对应的延迟队列，由TTL到期后死信回主队列，消费线程不再阻塞等待；
+ * 重试用尽后投递到死信队列并恢复Redis库存。每次投递都等待发布确认，确认后调用方才能确认原消息
+ */
+@Slf4j
+@Component
+public class OrderRetryPublisher {
+
+    public static final String RETRY_EXCHANGE = "order.retry.exchange";
+    public static final String DEAD_LETTER_QUEUE = "order.dlq";
+    public static final String DEAD_ROUTING_KEY = "dead";
+    public static final String RETRY_COUNT_HEADER = "x-retry-count";
+
+    private final RabbitTemplate rabbitTemplate;
+    private final MessageConverter messageConverter;
+    private final OrderCompensator orderCompensator;
+    private final int maxRetries;
+    private final long confirmTimeout;
+
+    private final Counter retriedCounter;
+    private final Counter deadLetteredCounter;
+
+    public OrderRetryPublisher(RabbitTemplate rabbitTemplate, MessageConverter messageConverter,
+                               OrderCompensator orderCompensator, SeckillProperties seckillProperties,
+                               MeterRegistry meterRegistry) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.messageConverter = messageConverter;
+        this.orderCompensator = orderCompensator;
+        this.maxRetries = seckillProperties.getOrderRetry().getDelays().size();
+        this.confirmTimeout = seckillProperties.getOrderRetry().getConfirmTimeout();
+        this.retriedCounter = Counter.builder("order.retry.scheduled").register(meterRegistry);
+        this.deadLetteredCounter = Counter.builder("order.retry.dead-lettered").register(meterRegistry);
+    }
+
+    public static String retryRoutingKey(int attempt) {
+        return "retry." + attempt;
+    }
+
+    /**
+     * 投递到下一级延迟队列，重试用尽时投递到死信队列。收到发布确认后返回，调用方再确认原消息
+     * @throws AmqpException 投递失败、被拒绝、无法路由或确认超时，调用方应拒绝原消息并重新入队
+     */
+    public void retryOrDeadLetter(Message message) {
+        Integer retried = message.getMessageProperties().getHeader(RETRY_COUNT_HEADER);
+        int attempt = (retried == null ? 0 : retried) + 1;
+        if (attempt > maxRetries) {
+            deadLetter(message);
+            return;
+        }
+        Message retry = MessageBuilder.fromMessage(message)
+                .setHeader(RETRY_COUNT_HEADER, attempt)
+                .build();
+        sendConfirmed(retryRoutingKey(attempt), retry);
+        retriedCounter.increment();
+        log.warn("下单失败，第{}次延迟重试: {}", attempt, describe(message));
+    }
+
+    private void deadLetter(Message message) {
+        sendConfirmed(DEAD_ROUTING_KEY, message);
+        deadLetteredCounter.increment();
+        log.error("下单重试{}次仍失败，进入死信队列: {}", maxRetries, describe(message));
+        // 补偿：订单不会再创建，恢复Redis库存
+        Object body = convert(message);
+        if (body instanceof OrderMessage) {
+            OrderMessage msg = (OrderMessage) body;
+            orderCompensator.compensate(msg.getOrderId(), msg.getUserId(), msg.getVoucherId());
+        }
+    }
+
+    /**
+     * 发送并同步等待broker确认，未确认前不能确认原消息，否则broker丢弃或拒绝时订单丢失
+     */
+    private void sendConfirmed(String routingKey, Message message) {
+        CorrelationData correlationData = new CorrelationData();
+        rabbitTemplate.send(RETRY_EXCHANGE, routingKey, message, correlationData);
+        CorrelationData.Confirm confirm;
+        try {
+            confirm = correlationData.getFuture().get(confirmTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmqpException("等待发布确认被中断: " + routingKey, e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new AmqpException("未收到发布确认: " + routingKey, e);
+        }
+        if (!confirm.isAck()) {
+            throw new AmqpException("消息被broker拒绝: " + routingKey + ", reason: " + confirm.getReason());
+        }
+        if (correlationData.getReturned() != null) {
+            throw new AmqpException("消息无法路由: " + routingKey + ", " + correlationData.getReturned().getReplyText());
+        }
+    }
+
+    private Object convert(Message message) {
+        try {
+            return messageConverter.fromMessage(message);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private String describe(Message message) {
+        Object body = convert(message);
+        return body != null ? body.toString() : message.toString();
+    }
+}
@@ -0,0 +1,251 @@
+package com.hmdp.utils.consumer;
+
+import cn.hutool.core.util.IdUtil;
+import com.google.common.util.concurrent.RateLimiter;
+import com.hmdp.properties.SeckillProperties;
+import com.hmdp.utils.seckill.OrderCompensator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisStreamCommands.XClaimOptions;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Redis Stream 订单消费者，hm.seckill.transport=redis-stream 时替代RabbitMQ消费者
+ * 以消费组方式批量读取订单流，按优惠券分组批量下单，成功后 XACK + XDEL；失败的订单留在待确认列表中，
+ * 超过 claimIdle 后被认领重试（本节点宕机遗留的订单同样如此），投递次数达到上限后转入死信流并恢复Redis库存。
+ * 重复处理由下单时的一人一单去重查询吸收
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "hm.seckill", name = "transport", havingValue = "redis-stream")
+public class StreamOrderConsumer {
+
+    private static final String FIELD_USER_ID = "userId";
+    private static final String FIELD_VOUCHER_ID = "voucherId";
+    private static final String FIELD_ORDER_ID = "orderId";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final OrderBatchProcessor orderBatchProcessor;
+    private final RateLimiter rateLimiter;
+    private final OrderCompensator orderCompensator;
+    private final SeckillProperties.OrderStream properties;
+    private final String nodeId = IdUtil.fastSimpleUUID();
+
+    private final Counter consumedCounter;
+    private final Counter reclaimedCounter;
+    private final Counter deadLetteredCounter;
+
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    public StreamOrderConsumer(StringRedisTemplate stringRedisTemplate, OrderBatchProcessor orderBatchProcessor,
+                               RateLimiter rateLimiter, OrderCompensator orderCompensator,
+                               SeckillProperties seckillProperties, MeterRegistry meterRegistry) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.orderBatchProcessor = orderBatchProcessor;
+        this.rateLimiter = rateLimiter;
+        this.orderCompensator = orderCompensator;
+        this.properties = seckillProperties.getOrderStream();
+        this.consumedCounter = Counter.builder("order.stream.consumed").register(meterRegistry);
+        this.reclaimedCounter = Counter.builder("order.stream.reclaimed").register(meterRegistry);
+        this.deadLetteredCounter = Counter.builder("order.stream.dead-lettered").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        createGroup();
+        running = true;
+        for (int i = 0; i < Math.max(1, properties.getConsumers()); i++) {
+            String consumerName = "order-" + nodeId + "-" + i;
+            // 只由第一个线程认领超时订单，避免本节点线程之间互相争抢
+            boolean reclaimer = i == 0;
+            Thread worker = new Thread(() -> consume(consumerName, reclaimer), "order-stream-consumer-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+    }
+
+    private void consume(String consumerName, boolean reclaimer) {
+        long lastReclaim = 0;
+        while (running) {
+            try {
+                List<MapRecord<String, Object, Object>> records = readBatch(consumerName);
+                if (records != null && !records.isEmpty()) {
+                    Map<RecordId, Map<?, ?>> batch = new LinkedHashMap<>();
+                    records.forEach(record -> batch.put(record.getId(), record.getValue()));
+                    handle(batch);
+                }
+                long now = System.currentTimeMillis();
+                if (reclaimer && now - lastReclaim >= properties.getClaimIdle() / 2) {
+                    lastReclaim = now;
+                    reclaim(consumerName);
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.error("订单流消费失败", e);
+                try {
+                    Thread.sleep(properties.getBlock());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<MapRecord<String, Object, Object>> readBatch(String consumerName) {
+        StreamOffset<String> offset = StreamOffset.create(properties.getKey(), ReadOffset.lastConsumed());
+        return streamOps().read(Consumer.from(properties.getGroup(), consumerName),
+                StreamReadOptions.empty().count(properties.getBatchSize()).block(Duration.ofMillis(properties.getBlock())),
+                offset);
+    }
+
+    /**
+     * 批量下单，成功后确认并删除；失败时保留在待确认列表中等待认领重试
+     */
+    private void handle(Map<RecordId, Map<?, ?>> batch) {
+        // 限流按批计算，控制数据库事务数而不是订单数
+        rateLimiter.acquire();
+        Map<Long, Map<Long, Long>> groups = new LinkedHashMap<>();
+        for (Map.Entry<RecordId, Map<?, ?>> entry : batch.entrySet()) {
+            Long userId = parse(entry.getValue().get(FIELD_USER_ID));
+            Long voucherId = parse(entry.getValue().get(FIELD_VOUCHER_ID));
+            if (userId == null || voucherId == null) {
+                log.warn("无法解析的订单，丢弃: {}={}", entry.getKey(), entry.getValue());
+                continue;
+            }
+            groups.computeIfAbsent(voucherId, k -> new LinkedHashMap<>())
+                    .putIfAbsent(userId, parse(entry.getValue().get(FIELD_ORDER_ID)));
+        }
+        try {
+            int created = orderBatchProcessor.process(groups);
+            acknowledge(batch.keySet());
+            consumedCounter.increment(batch.size());
+            log.info("订单流批量处理完成: 消息数={}, 创建订单数={}", batch.size(), created);
+        } catch (Exception e) {
+            log.error("订单流批量下单失败，等待认领重试: 消息数={}", batch.size(), e);
+        }
+    }
+
+    /**
+     * 认领超时未确认的订单，投递次数达到上限的转入死信流并恢复库存，其余重新处理
+     */
+    private void reclaim(String consumerName) {
+        PendingMessages pending = streamOps().pending(properties.getKey(), properties.getGroup(),
+                Range.unbounded(), properties.getBatchSize());
+        Duration idle = Duration.ofMillis(properties.getClaimIdle());
+        Map<RecordId, Long> deliveries = new HashMap<>();
+        for (PendingMessage message : pending) {
+            if (message.getElapsedTimeSinceLastDelivery().compareTo(idle) >= 0) {
+                deliveries.put(message.getId(), message.getTotalDeliveryCount());
+            }
+        }
+        if (deliveries.isEmpty()) {
+            return;
+        }
+        byte[] key = properties.getKey().getBytes(StandardCharsets.UTF_8);
+        RecordId[] ids = deliveries.keySet().toArray(new RecordId[0]);
+        // 显式指定IDLE：Redisson把IDLE当作XCLAIM的min-idle-time参数，未指定时抛出空指针；空闲时间已在上面过滤
+        XClaimOptions options = XClaimOptions.minIdle(idle).ids(ids).idle(Duration.ZERO);
+        List<ByteRecord> claimed = stringRedisTemplate.execute((RedisCallback<List<ByteRecord>>) connection ->
+                connection.streamCommands().xClaim(key, properties.getGroup(), consumerName, options));
+        if (claimed == null || claimed.isEmpty()) {
+            return;
+        }
+        reclaimedCounter.increment(claimed.size());
+        Map<RecordId, Map<?, ?>> retry = new LinkedHashMap<>();
+        for (ByteRecord record : claimed) {
+            Map<String, String> fields = new HashMap<>(4);
+            record.getValue().forEach((k, v) ->
+                    fields.put(new String(k, StandardCharsets.UTF_8), new String(v, StandardCharsets.UTF_8)));
+            if (deliveries.getOrDefault(record.getId(), 0L) >= properties.getMaxDeliveries()) {
+                deadLetter(record.getId(), fields);
+            } else {
+                retry.put(record.getId(), fields);
+            }
+        }
+        if (!retry.isEmpty()) {
+            handle(retry);
+        }
+    }
+
+    private void deadLetter(RecordId id, Map<String, String> fields) {
+        streamOps().add(properties.getDeadLetterKey(), fields);
+        acknowledge(Collections.singleton(id));
+        deadLetteredCounter.increment();
+        log.error("订单投递{}次仍失败，进入死信流: {}", properties.getMaxDeliveries(), fields);
+        // 补偿：订单不会再创建，恢复Redis库存
+        Long userId = parse(fields.get(FIELD_USER_ID));
+        Long voucherId = parse(fields.get(FIELD_VOUCHER_ID));
+        if (userId == null || voucherId == null) {
+            return;
+        }
+        orderCompensator.compensate(parse(fields.get(FIELD_ORDER_ID)), userId, voucherId);
+    }
+
+    private void acknowledge(Set<RecordId> ids) {
+        RecordId[] array = ids.toArray(new RecordId[0]);
+        streamOps().acknowledge(properties.getKey(), properties.getGroup(), array);
+        streamOps().delete(properties.getKey(), array);
+    }
+
+    private void createGroup() {
+        byte[] key = properties.getKey().getBytes(StandardCharsets.UTF_8);
+        try {
+            stringRedisTemplate.execute((RedisCallback<Object>) connection ->
+                    connection.streamCommands().xGroupCreate(key, properties.getGroup(), ReadOffset.from("0"), true));
+        } catch (Exception e) {
+            // 消费组已存在
+            log.debug("订单流消费组已存在: {}", e.getMessage());
+        }
+    }
+
+    private static Long parse(Object value) {
+        try {
+            return value == null ? null : Long.valueOf(value.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private StreamOperations<String, Object, Object> streamOps() {
+        return stringRedisTemplate.opsForStream();
+    }
+}
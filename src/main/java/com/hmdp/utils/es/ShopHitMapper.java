@@ -0,0 +1,105 @@
+package com.hmdp.utils.es;
+
+import com.hmdp.dto.ShopVO;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 商铺搜索命中结果转 {@link ShopVO}，ES文档中经纬度以 "lat,lon" 字符串保存在 location 字段
+ */
+@Slf4j
+public final class ShopHitMapper {
+
+    private ShopHitMapper() {
+    }
+
+    /**
+     * @param distance 是否按距离排序，是则取第一个排序值作为距离(km)
+     */
+    public static List<ShopVO> toShopVOs(SearchHits hits, boolean distance) {
+        List<ShopVO> shops = new ArrayList<>();
+        for (SearchHit hit : hits) {
+            // 获取源数据
+            Map<String, Object> sourceMap = hit.getSourceAsMap();
+            ShopVO shop = new ShopVO();
+
+            // 手动映射字段，确保数据正确转换
+            shop.setId(getLongValue(sourceMap, "id"));
+            shop.setName(getStringValue(sourceMap, "name"));
+            shop.setTypeId(getLongValue(sourceMap, "typeId"));
+            shop.setImages(getStringValue(sourceMap, "images"));
+            shop.setArea(getStringValue(sourceMap, "area"));
+            shop.setAddress(getStringValue(sourceMap, "address"));
+
+            // 从location字段解析经纬度
+            String location = getStringValue(sourceMap, "location");
+            if (location != null && !location.isEmpty()) {
+                String[] coords = location.split(",");
+                if (coords.length == 2) {
+                    try {
+                        shop.setX(Double.parseDouble(coords[1])); // 经度
+                        shop.setY(Double.parseDouble(coords[0])); // 纬度
+                    } catch (NumberFormatException e) {
+                        log.warn("解析经纬度失败: {}", location);
+                    }
+                }
+            }
+
+            shop.setAvgPrice(getLongValue(sourceMap, "avgPrice"));
+            shop.setSold(getIntegerValue(sourceMap, "sold"));
+            shop.setComments(getIntegerValue(sourceMap, "comments"));
+            shop.setScore(getIntegerValue(sourceMap, "score"));
+            shop.setOpenHours(getStringValue(sourceMap, "openHours"));
+
+            // 如果是距离排序，取出距离信息
+            if (distance && hit.getSortValues().length > 0) {
+                shop.setDistance((double) hit.getSortValues()[0]);
+            }
+            shops.add(shop);
+        }
+        return shops;
+    }
+
+    // 辅助方法：安全获取Long值
+    private static Long getLongValue(Map<String, Object> map, String key) {
+        Object value = map.get(key);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        try {
+            return Long.parseLong(value.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // 辅助方法：安全获取Integer值
+    private static Integer getIntegerValue(Map<String, Object> map, String key) {
+        Object value = map.get(key);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        try {
+            return Integer.parseInt(value.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // 辅助方法：安全获取String值
+    private static String getStringValue(Map<String, Object> map, String key) {
+        Object value = map.get(key);
+        return value != null ? value.toString() : null;
+    }
+}
@@ -1,13 +1,11 @@
 package com.hmdp.utils.interceptor;
 
-import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.StrUtil;
 import com.hmdp.dto.UserDTO;
 import com.hmdp.properties.JwtProperties;
 import com.hmdp.utils.UserHolder;
-import com.hmdp.utils.jwt.JwtClaimsConstant;
-import com.hmdp.utils.jwt.JwtUtil;
-import io.jsonwebtoken.Claims;
+import com.hmdp.utils.cache.HashCodec;
+import com.hmdp.utils.jwt.VerifiedTokenCache;
 import io.jsonwebtoken.ExpiredJwtException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.StringRedisTemplate;
@@ -27,25 +25,28 @@ public class RefreshTokenInterceptor implements HandlerInterceptor {
     private StringRedisTemplate stringRedisTemplate;
     // 直接通过构造器注入
     private final JwtProperties jwtProperties;
+    // 已验签的token，重复请求跳过验签
+    private final VerifiedTokenCache verifiedTokens;
 
 
     public RefreshTokenInterceptor(StringRedisTemplate stringRedisTemplate, JwtProperties jwtProperties) {
         this.stringRedisTemplate = stringRedisTemplate;
         // 手动接收依赖
         this.jwtProperties = jwtProperties;
+        this.verifiedTokens = new VerifiedTokenCache(jwtProperties.getUserSecretKey(),
+                jwtProperties.getVerifiedTokenCacheSize());
     }
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
-        log.info("=== RefreshTokenInterceptor 开始执行 ===");
-        log.info("当前请求URL: {}", request.getRequestURI());
+        // 每个请求都会经过，只在DEBUG级别记录，且不记录token和登录信息的值
+        log.debug("RefreshTokenInterceptor 处理请求: {}", request.getRequestURI());
 
         // 1. 统一从 Authorization 里取
         String authHeader = request.getHeader("Authorization");
-        log.info("Authorization raw: {}", authHeader);
 
         if (StrUtil.isBlank(authHeader)) {
-            log.info("Authorization 为空，直接放行");
+            log.debug("Authorization 为空，直接放行");
             return true;
         }
 
@@ -54,47 +55,41 @@ public class RefreshTokenInterceptor implements HandlerInterceptor {
         if (StrUtil.startWithIgnoreCase(token, "Bearer ")) {
             token = token.substring(7).trim();
         }
-        log.info("最终处理后的 token: {}", token);
 
         if (StrUtil.isBlank(token)) {
-            log.info("token 为空，直接放行");
+            log.debug("token 为空，直接放行");
             return true;
         }
 
         try {
-            // 3. 解析 JWT
-            log.info("开始解析 token...");
-            Claims claims = JwtUtil.parseJWT(token,jwtProperties.getUserSecretKey());
-            Long userId = claims.get(JwtClaimsConstant.USER_ID, Long.class);
-            log.info("解析成功，userId: {}", userId);
+            // 3. 解析 JWT，验签过且未过期的token直接取缓存的userId
+            Long userId = verifiedTokens.getUserId(token);
+            log.debug("token 解析成功，userId: {}", userId);
 
             // 4. 基于 userId 查询 Redis
             String key = LOGIN_USER_KEY + userId;
             Map<Object, Object> userMap = stringRedisTemplate.opsForHash().entries(key);
-            log.info("Redis中用户信息: {}", userMap);
 
             if (userMap.isEmpty()) {
-                log.info("Redis 中用户不存在，直接放行");
+                log.debug("Redis 中用户不存在，直接放行");
                 return true;
             }
 
             // 5. 校验 token 一致性
             String redisToken = (String) userMap.get("jwttoken");
-            log.info("Redis 中的 token: {}", redisToken);
 
             if (!token.equals(redisToken)) {
-                log.info("token 不一致，直接放行");
+                log.debug("token 与 Redis 中的不一致，直接放行，userId: {}", userId);
                 return true;
             }
 
             // 6. 转 DTO 存入 ThreadLocal
-            UserDTO userDTO = BeanUtil.fillBeanWithMap(userMap, new UserDTO(), false);
-            log.info("转换为 UserDTO 成功: {}", userDTO);
+            UserDTO userDTO = HashCodec.of(UserDTO.class).decode(userMap);
             UserHolder.saveUser(userDTO);
 
             // 7. 刷新 token 有效期
             stringRedisTemplate.expire(key, LOGIN_USER_TTL, TimeUnit.SECONDS);
-            log.info("token 有效期已刷新");
+            log.debug("登录有效期已刷新，userId: {}", userId);
 
             return true;
         } catch (ExpiredJwtException e) {
@@ -2,18 +2,23 @@ package com.hmdp.utils.jwt;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
-import lombok.extern.slf4j.Slf4j;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-@Slf4j
 public class JwtUtil {
 
+    /**
+     * 按秘钥缓存的解析器，解析器线程安全，秘钥来自配置，数量有限
+     */
+    private static final Map<String, JwtParser> PARSERS = new ConcurrentHashMap<>();
+
     /**
      * 生成jwt 使用Hs256算法, 私匙使用固定秘钥
      *
@@ -50,15 +55,17 @@ public class JwtUtil {
      * @return
      */
     public static Claims parseJWT(String jwt, String secretKey) {
-        log.info("parseJWT 调用, jwt={}, secretKey={}", jwt, secretKey);
-        // 得到DefaultJwtParser
-        Claims claims = Jwts.parserBuilder()
-                // 设置签名的秘钥
-                .setSigningKey(Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8)))
+        // 同一秘钥复用解析器，不再每次生成密钥和DefaultJwtParser
+        return PARSERS.computeIfAbsent(secretKey, JwtUtil::buildParser)
                 // 设置需要解析的jwt
-                .build()
                 .parseClaimsJws(jwt)
                 .getBody();
-        return claims;
     }
-}
\ No newline at end of file
+
+    private static JwtParser buildParser(String secretKey) {
+        return Jwts.parserBuilder()
+                // 设置签名的秘钥
+                .setSigningKey(Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8)))
+                .build();
+    }
+}
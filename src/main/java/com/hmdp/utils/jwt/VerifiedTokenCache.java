@@ -0,0 +1,75 @@
+package com.hmdp.utils.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已验签token的本地缓存：token -> (userId, 过期时间)
+ * 同一token在过期前再次请求时跳过HMAC验签，条目随token过期一起失效，超出容量按W-TinyLFU淘汰
+ */
+public class VerifiedTokenCache {
+
+    private final String secretKey;
+    private final Cache<String, VerifiedToken> cache;
+
+    public VerifiedTokenCache(String secretKey, long maximumSize) {
+        this.secretKey = secretKey;
+        this.cache = Caffeine.newBuilder()
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(
+                                Math.max(0, value.expireAt - System.currentTimeMillis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * 取token中的userId，未命中时完整解析并验签，解析异常(过期、签名错误等)原样抛出
+     * 只缓存带userId和过期时间的token
+     */
+    public Long getUserId(String token) {
+        VerifiedToken verified = cache.getIfPresent(token);
+        if (verified != null) {
+            return verified.userId;
+        }
+        Claims claims = JwtUtil.parseJWT(token, secretKey);
+        Long userId = claims.get(JwtClaimsConstant.USER_ID, Long.class);
+        Date expiration = claims.getExpiration();
+        if (userId != null && expiration != null) {
+            cache.put(token, new VerifiedToken(userId, expiration.getTime()));
+        }
+        return userId;
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    private static final class VerifiedToken {
+        private final Long userId;
+        private final long expireAt;
+
+        private VerifiedToken(Long userId, long expireAt) {
+            this.userId = userId;
+            this.expireAt = expireAt;
+        }
+    }
+}
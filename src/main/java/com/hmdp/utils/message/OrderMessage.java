@@ -16,4 +16,8 @@ import java.io.Serializable;
 public class OrderMessage implements Serializable {
     private Long userId;
     private Long voucherId;
+    /**
+     * 秒杀时预先生成的订单id，升级前投递的消息中为null
+     */
+    private Long orderId;
 }
@@ -0,0 +1,260 @@
+package com.hmdp.utils.message;
+
+import cn.hutool.core.util.IdUtil;
+import com.hmdp.properties.SeckillProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.RedisStreamCommands.XClaimOptions;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 秒杀订单消息发件箱
+ * 秒杀脚本扣减库存的同时把订单写入Redis Stream，请求线程随即返回；后台转发线程以消费组方式批量读取并发送到RabbitMQ，
+ * 收到publisher confirm后 XACK + XDEL。超过 claimIdle 仍未确认的消息（发送失败、本节点宕机）被认领后重新发送，
+ * 消费端的一人一单检查保证重复发送不会重复下单
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "hm.seckill", name = "transport", havingValue = "rabbit", matchIfMissing = true)
+public class OrderOutbox {
+
+    private static final String GROUP = "relay";
+    private static final String FIELD_USER_ID = "userId";
+    private static final String FIELD_VOUCHER_ID = "voucherId";
+    private static final String FIELD_ORDER_ID = "orderId";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RabbitTemplate rabbitTemplate;
+    private final SeckillProperties.Outbox properties;
+    private final int stockShards;
+    private final String consumerName = "relay-" + IdUtil.fastSimpleUUID();
+
+    /**
+     * 已确认待XACK的消息，由转发线程批量处理
+     */
+    private final Queue<RecordId> confirmed = new ConcurrentLinkedQueue<>();
+
+    private final Counter appendedCounter;
+    private final Counter publishedCounter;
+    private final Counter confirmedCounter;
+    private final Counter reclaimedCounter;
+
+    private volatile boolean running;
+    private Thread relayThread;
+    private long lastReclaim;
+
+    public OrderOutbox(StringRedisTemplate stringRedisTemplate, RabbitTemplate rabbitTemplate,
+                       SeckillProperties seckillProperties, MeterRegistry meterRegistry) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.rabbitTemplate = rabbitTemplate;
+        this.properties = seckillProperties.getOutbox();
+        this.stockShards = Math.max(1, seckillProperties.getStockShards());
+        this.appendedCounter = Counter.builder("seckill.outbox.appended").register(meterRegistry);
+        this.publishedCounter = Counter.builder("seckill.outbox.published").register(meterRegistry);
+        this.confirmedCounter = Counter.builder("seckill.outbox.confirmed").register(meterRegistry);
+        this.reclaimedCounter = Counter.builder("seckill.outbox.reclaimed").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        createGroup();
+        running = true;
+        relayThread = new Thread(this::relay, "order-outbox-relay");
+        relayThread.setDaemon(true);
+        relayThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (relayThread != null) {
+            relayThread.interrupt();
+        }
+    }
+
+    /**
+     * 秒杀脚本扣减库存时原子写入的发件箱key，未开启发件箱时返回null。
+     * 库存分片时各分片可能落在不同节点，无法与单个发件箱key在同一脚本中写入，也返回null，改由 {@link #append} 追加
+     */
+    public String streamKey() {
+        return properties.isEnabled() && stockShards == 1 ? properties.getStream() : null;
+    }
+
+    /**
+     * 订单已由秒杀脚本写入发件箱
+     */
+    public void appended() {
+        appendedCounter.increment();
+    }
+
+    /**
+     * 追加订单消息，返回后由转发线程保证送达
+     */
+    public void append(OrderMessage message) {
+        Map<String, String> fields = new HashMap<>(4);
+        fields.put(FIELD_USER_ID, message.getUserId().toString());
+        fields.put(FIELD_VOUCHER_ID, message.getVoucherId().toString());
+        if (message.getOrderId() != null) {
+            fields.put(FIELD_ORDER_ID, message.getOrderId().toString());
+        }
+        stringRedisTemplate.opsForStream().add(properties.getStream(), fields);
+        appendedCounter.increment();
+    }
+
+    private void relay() {
+        while (running) {
+            try {
+                acknowledgeConfirmed();
+                List<MapRecord<String, Object, Object>> records = readBatch();
+                if (records != null) {
+                    records.forEach(record -> publish(record.getId(), record.getValue()));
+                }
+                long now = System.currentTimeMillis();
+                if (now - lastReclaim >= properties.getClaimIdle() / 2) {
+                    lastReclaim = now;
+                    reclaim();
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.error("订单发件箱转发失败", e);
+                try {
+                    Thread.sleep(properties.getBlock());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<MapRecord<String, Object, Object>> readBatch() {
+        StreamOffset<String> offset = StreamOffset.create(properties.getStream(), ReadOffset.lastConsumed());
+        return streamOps().read(Consumer.from(GROUP, consumerName),
+                StreamReadOptions.empty().count(properties.getBatchSize()).block(Duration.ofMillis(properties.getBlock())),
+                offset);
+    }
+
+    private void publish(RecordId id, Map<?, ?> fields) {
+        Object orderId = fields.get(FIELD_ORDER_ID);
+        OrderMessage message = new OrderMessage(
+                Long.valueOf(fields.get(FIELD_USER_ID).toString()),
+                Long.valueOf(fields.get(FIELD_VOUCHER_ID).toString()),
+                orderId == null ? null : Long.valueOf(orderId.toString()));
+        CorrelationData correlationData = new CorrelationData(id.getValue());
+        correlationData.getFuture().addCallback(confirm -> {
+            if (confirm != null && confirm.isAck()) {
+                confirmed.add(id);
+            } else {
+                // 保留在待确认列表中，超时后重新发送
+                log.warn("订单消息未被确认，等待重新发送: {}, reason: {}", message,
+                        confirm == null ? null : confirm.getReason());
+            }
+        }, ex -> log.error("订单消息发送失败，等待重新发送: {}", message, ex));
+        rabbitTemplate.convertAndSend("order.exchange", "order.create", message, correlationData);
+        publishedCounter.increment();
+    }
+
+    private void acknowledgeConfirmed() {
+        List<RecordId> ids = new ArrayList<>();
+        RecordId id;
+        while ((id = confirmed.poll()) != null) {
+            ids.add(id);
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        RecordId[] array = ids.toArray(new RecordId[0]);
+        streamOps().acknowledge(properties.getStream(), GROUP, array);
+        streamOps().delete(properties.getStream(), array);
+        confirmedCounter.increment(ids.size());
+    }
+
+    /**
+     * 认领超时未确认的消息并重新发送
+     */
+    private void reclaim() {
+        PendingMessages pending = streamOps().pending(properties.getStream(), GROUP,
+                Range.unbounded(), properties.getBatchSize());
+        Duration idle = Duration.ofMillis(properties.getClaimIdle());
+        List<RecordId> stale = new ArrayList<>();
+        for (PendingMessage message : pending) {
+            if (message.getElapsedTimeSinceLastDelivery().compareTo(idle) >= 0) {
+                stale.add(message.getId());
+            }
+        }
+        if (stale.isEmpty()) {
+            return;
+        }
+        byte[] key = properties.getStream().getBytes(StandardCharsets.UTF_8);
+        // 显式指定IDLE：Redisson把IDLE当作XCLAIM的min-idle-time参数，未指定时抛出空指针；空闲时间已在上面过滤
+        XClaimOptions options = XClaimOptions.minIdle(idle).ids(stale.toArray(new RecordId[0])).idle(Duration.ZERO);
+        List<ByteRecord> claimed = stringRedisTemplate.execute((RedisCallback<List<ByteRecord>>) connection ->
+                connection.streamCommands().xClaim(key, GROUP, consumerName, options));
+        if (claimed == null) {
+            return;
+        }
+        for (ByteRecord record : claimed) {
+            Map<String, String> fields = new HashMap<>(4);
+            record.getValue().forEach((k, v) ->
+                    fields.put(new String(k, StandardCharsets.UTF_8), new String(v, StandardCharsets.UTF_8)));
+            publish(record.getId(), fields);
+        }
+        reclaimedCounter.increment(claimed.size());
+    }
+
+    private void createGroup() {
+        byte[] key = properties.getStream().getBytes(StandardCharsets.UTF_8);
+        try {
+            stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+                RedisStreamCommands commands = connection.streamCommands();
+                return commands.xGroupCreate(key, GROUP, ReadOffset.from("0"), true);
+            });
+        } catch (Exception e) {
+            // 消费组已存在
+            log.debug("订单发件箱消费组已存在: {}", e.getMessage());
+        }
+    }
+
+    private StreamOperations<String, Object, Object> streamOps() {
+        return stringRedisTemplate.opsForStream();
+    }
+}
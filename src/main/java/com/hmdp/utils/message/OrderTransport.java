@@ -0,0 +1,19 @@
+package com.hmdp.utils.message;
+
+/**
+ * 秒杀订单投递方式，由 hm.seckill.transport 选择实现
+ */
+public interface OrderTransport {
+
+    /**
+     * 秒杀脚本需要原子写入的订单流key，不需要时返回null
+     */
+    default String streamKey() {
+        return null;
+    }
+
+    /**
+     * 扣减库存成功后投递订单；订单已由秒杀脚本写入时无需处理
+     */
+    void send(OrderMessage message);
+}
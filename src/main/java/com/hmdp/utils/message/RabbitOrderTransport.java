@@ -0,0 +1,64 @@
+package com.hmdp.utils.message;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+
+import javax.annotation.Resource;
+
+/**
+ * 通过RabbitMQ投递订单，开启发件箱时由秒杀脚本原子写入发件箱，后台转发
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "hm.seckill", name = "transport", havingValue = "rabbit", matchIfMissing = true)
+public class RabbitOrderTransport implements OrderTransport {
+
+    @Resource
+    private RabbitTemplate rabbitTemplate;
+
+    @Resource
+    private OrderOutbox orderOutbox;
+
+    @Override
+    public String streamKey() {
+        return orderOutbox.streamKey();
+    }
+
+    @Override
+    public void send(OrderMessage message) {
+        if (orderOutbox.isEnabled()) {
+            // 已由秒杀脚本写入发件箱，或追加到发件箱即返回，由后台转发并保证送达
+            if (orderOutbox.streamKey() != null) {
+                orderOutbox.appended();
+            } else {
+                orderOutbox.append(message);
+            }
+            return;
+        }
+        // 生产者发送消息-交换机 确认收到消息
+        // 1. 创建correlationData
+        CorrelationData correlationData = new CorrelationData();
+        // 2. 给future添加confirmCallback
+        correlationData.getFuture().addCallback(new ListenableFutureCallback<CorrelationData.Confirm>() {
+            @Override
+            public void onFailure(Throwable ex) {
+                log.error("消息发送失败", ex);
+            }
+
+            @Override
+            public void onSuccess(CorrelationData.Confirm result) {
+                if(result.isAck()){
+                    log.debug("消息发送成功");
+                }else{
+                    log.error("消息发送失败");
+                }
+            }
+        });
+
+        rabbitTemplate.convertAndSend("order.exchange", "order.create", message, correlationData);
+    }
+}
@@ -0,0 +1,34 @@
+package com.hmdp.utils.message;
+
+import com.hmdp.properties.SeckillProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 通过Redis Stream投递订单，订单由秒杀脚本在扣减库存的同时写入订单流，不存在扣减成功但消息丢失的窗口。
+ * 订单流是单个key，需与库存key在同一节点，仅适用于主从/哨兵部署；库存分片时各分片可能落在不同节点，
+ * 脚本同时访问分片key和订单流key会报 CROSSSLOT，因此启动时拒绝与 stock-shards &gt; 1 同时使用
+ */
+@Component
+@ConditionalOnProperty(prefix = "hm.seckill", name = "transport", havingValue = "redis-stream")
+public class RedisStreamOrderTransport implements OrderTransport {
+
+    private final String streamKey;
+
+    public RedisStreamOrderTransport(SeckillProperties seckillProperties) {
+        if (seckillProperties.getStockShards() > 1) {
+            throw new IllegalStateException("hm.seckill.transport=redis-stream 不支持库存分片，请将 hm.seckill.stock-shards 设为1");
+        }
+        this.streamKey = seckillProperties.getOrderStream().getKey();
+    }
+
+    @Override
+    public String streamKey() {
+        return streamKey;
+    }
+
+    @Override
+    public void send(OrderMessage message) {
+        // 已由秒杀脚本写入订单流
+    }
+}
@@ -0,0 +1,63 @@
+package com.hmdp.utils.seckill;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * 订单最终失败的补偿，订单状态置为FAILED并清除本节点的请求去重记录，用户可以重新下单
+ * 1. 死信、秒杀券不存在、不在有效期内：归还Redis库存并移出下单用户集合，清除售罄标记
+ * 2. 数据库库存耗尽：Redis库存多于数据库，只移出下单用户集合并标记售罄，不归还库存，差额由对账修正
+ */
+@Slf4j
+@Component
+public class OrderCompensator {
+
+    private final SeckillStockRouter seckillStockRouter;
+    private final SoldOutRegistry soldOutRegistry;
+    private final OrderStatusCache orderStatusCache;
+    private final SeckillRequestGuard seckillRequestGuard;
+
+    public OrderCompensator(SeckillStockRouter seckillStockRouter, SoldOutRegistry soldOutRegistry,
+                            OrderStatusCache orderStatusCache, SeckillRequestGuard seckillRequestGuard) {
+        this.seckillStockRouter = seckillStockRouter;
+        this.soldOutRegistry = soldOutRegistry;
+        this.orderStatusCache = orderStatusCache;
+        this.seckillRequestGuard = seckillRequestGuard;
+    }
+
+    /**
+     * 补偿失败只记录日志，剩余的库存差异由 {@link SeckillStockReconciler} 对账修正
+     * @param orderId 订单id，为null时不更新订单状态
+     */
+    public void compensate(Long orderId, Long userId, Long voucherId) {
+        try {
+            if (orderId != null) {
+                orderStatusCache.update(orderId, OrderStatusCache.Status.FAILED);
+            }
+            seckillRequestGuard.evict(userId, voucherId);
+            seckillStockRouter.restoreStock(voucherId, userId);
+            soldOutRegistry.clear(voucherId);
+            log.info("已恢复Redis库存: userId={}, voucherId={}", userId, voucherId);
+        } catch (Exception e) {
+            log.error("恢复Redis库存失败: userId={}, voucherId={}", userId, voucherId, e);
+        }
+    }
+
+    /**
+     * 数据库库存耗尽时的失败处理，失败只记录日志
+     * @param orderId 订单id，为null时不更新订单状态
+     */
+    public void compensateSoldOut(Long orderId, Long userId, Long voucherId) {
+        try {
+            if (orderId != null) {
+                orderStatusCache.update(orderId, OrderStatusCache.Status.FAILED);
+            }
+            seckillRequestGuard.evict(userId, voucherId);
+            seckillStockRouter.releaseUser(voucherId, userId);
+            soldOutRegistry.markSoldOut(voucherId);
+            log.info("数据库库存已耗尽，订单失败: userId={}, voucherId={}", userId, voucherId);
+        } catch (Exception e) {
+            log.error("处理库存耗尽订单失败: userId={}, voucherId={}", userId, voucherId, e);
+        }
+    }
+}
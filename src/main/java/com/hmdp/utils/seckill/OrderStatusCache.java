@@ -0,0 +1,86 @@
+package com.hmdp.utils.seckill;
+
+import com.hmdp.properties.SeckillProperties;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.hmdp.utils.constans.RedisConstants.SECKILL_ORDER_STATUS_KEY;
+
+/**
+ * 秒杀订单状态缓存，seckill:status:{orderId} -> {status, userId, voucherId}
+ * 秒杀成功时写入 PENDING，消费者落库后更新为 SUCCESS 或 FAILED，客户端轮询只读Redis。
+ * PENDING 用 HSETNX 写入，Redis Stream 投递时消费者可能先于请求线程写入最终状态
+ */
+@Component
+public class OrderStatusCache {
+
+    public static final String FIELD_STATUS = "status";
+    public static final String FIELD_USER_ID = "userId";
+    public static final String FIELD_VOUCHER_ID = "voucherId";
+
+    public enum Status {
+        PENDING, SUCCESS, FAILED
+    }
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final long ttlSeconds;
+
+    public OrderStatusCache(StringRedisTemplate stringRedisTemplate, SeckillProperties seckillProperties) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.ttlSeconds = seckillProperties.getOrderStatusTtl();
+    }
+
+    /**
+     * 记录待处理订单
+     */
+    public void markPending(Long orderId, Long userId, Long voucherId) {
+        String key = SECKILL_ORDER_STATUS_KEY + orderId;
+        Map<String, String> owner = new HashMap<>(4);
+        owner.put(FIELD_USER_ID, userId.toString());
+        owner.put(FIELD_VOUCHER_ID, voucherId.toString());
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            conn.hSetNX(key, FIELD_STATUS, Status.PENDING.name());
+            conn.hMSet(key, owner);
+            conn.expire(key, ttlSeconds);
+            return null;
+        });
+    }
+
+    /**
+     * 批量更新订单最终状态，升级前投递的消息没有订单id，直接忽略
+     */
+    public void update(Map<Long, Status> statuses) {
+        statuses.remove(null);
+        if (statuses.isEmpty()) {
+            return;
+        }
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            statuses.forEach((orderId, status) -> {
+                String key = SECKILL_ORDER_STATUS_KEY + orderId;
+                conn.hSet(key, FIELD_STATUS, status.name());
+                conn.expire(key, ttlSeconds);
+            });
+            return null;
+        });
+    }
+
+    public void update(Long orderId, Status status) {
+        Map<Long, Status> statuses = new HashMap<>(2);
+        statuses.put(orderId, status);
+        update(statuses);
+    }
+
+    /**
+     * 读取订单状态，已过期时返回空Map
+     */
+    public Map<Object, Object> get(Long orderId) {
+        return stringRedisTemplate.opsForHash().entries(SECKILL_ORDER_STATUS_KEY + orderId);
+    }
+}
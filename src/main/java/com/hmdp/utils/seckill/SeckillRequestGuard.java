@@ -0,0 +1,100 @@
+package com.hmdp.utils.seckill;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.util.concurrent.RateLimiter;
+import com.hmdp.dto.Result;
+import com.hmdp.properties.SeckillProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 秒杀接口入口处的本地去重与限流，在查询秒杀券和执行Lua脚本之前拦截
+ * 1. 用户对同一秒杀券已抢到或已判定重复下单时，短时间内的重复点击直接返回本地记录的结果（抢到时返回同一订单id）
+ * 2. 每个用户一个令牌桶，超出速率的请求直接拒绝
+ * 拒绝比例通过 seckill.guard.requests{outcome=passed|deduplicated|throttled} 计算
+ */
+@Component
+public class SeckillRequestGuard {
+
+    public static final String DUPLICATE_ORDER_MSG = "不能重复下单";
+    public static final String THROTTLED_MSG = "操作过于频繁，请稍后再试";
+
+    private final SeckillProperties.Guard properties;
+    private final Cache<String, Result> attempts;
+    private final Cache<Long, RateLimiter> limiters;
+
+    private final Counter passedCounter;
+    private final Counter deduplicatedCounter;
+    private final Counter throttledCounter;
+
+    public SeckillRequestGuard(SeckillProperties seckillProperties, MeterRegistry meterRegistry) {
+        this.properties = seckillProperties.getGuard();
+        this.attempts = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxUsers())
+                .expireAfterWrite(properties.getAttemptTtl(), TimeUnit.SECONDS)
+                .build();
+        // 令牌桶空闲到补满一个令牌后才淘汰，淘汰后重建的新桶不会多放行
+        this.limiters = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxUsers())
+                .expireAfterAccess(Math.max(1000, (long) Math.ceil(1000 / properties.getUserRate())),
+                        TimeUnit.MILLISECONDS)
+                .build();
+        this.passedCounter = Counter.builder("seckill.guard.requests").tag("outcome", "passed")
+                .register(meterRegistry);
+        this.deduplicatedCounter = Counter.builder("seckill.guard.requests").tag("outcome", "deduplicated")
+                .register(meterRegistry);
+        this.throttledCounter = Counter.builder("seckill.guard.requests").tag("outcome", "throttled")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 检查请求能否放行
+     * @return 放行时为null，否则为直接返回给用户的结果
+     */
+    public Result check(Long userId, Long voucherId) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        Result previous = attempts.getIfPresent(key(userId, voucherId));
+        if (previous != null) {
+            deduplicatedCounter.increment();
+            return previous;
+        }
+        RateLimiter limiter = limiters.get(userId, k -> RateLimiter.create(properties.getUserRate()));
+        if (!limiter.tryAcquire()) {
+            throttledCounter.increment();
+            return Result.fail(THROTTLED_MSG);
+        }
+        passedCounter.increment();
+        return null;
+    }
+
+    /**
+     * 记录下单结果，只记录抢到和重复下单这类不会再变化的结果。
+     * 抢到的订单最终失败时由 {@link OrderCompensator} 调用 {@link #evict} 清除；清除只作用于本节点，
+     * 其他节点记录的结果最多保留 attemptTtl，期间重复点击仍返回原订单id，轮询订单状态可看到失败
+     */
+    public void record(Long userId, Long voucherId, Result result) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (Boolean.TRUE.equals(result.getSuccess()) || DUPLICATE_ORDER_MSG.equals(result.getErrorMsg())) {
+            attempts.put(key(userId, voucherId), result);
+        }
+    }
+
+    /**
+     * 订单最终失败后清除本节点记录的结果，用户可以立即重新下单
+     */
+    public void evict(Long userId, Long voucherId) {
+        attempts.invalidate(key(userId, voucherId));
+    }
+
+    private static String key(Long userId, Long voucherId) {
+        return userId + ":" + voucherId;
+    }
+}
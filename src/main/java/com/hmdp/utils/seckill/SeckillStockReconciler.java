@@ -0,0 +1,186 @@
+package com.hmdp.utils.seckill;
+
+import com.hmdp.entity.SeckillVoucher;
+import com.hmdp.mapper.SeckillVoucherMapper;
+import com.hmdp.mapper.VoucherOrderMapper;
+import com.hmdp.properties.SeckillProperties;
+import com.hmdp.utils.LuaScriptRegistry;
+import com.hmdp.utils.cache.TieredCacheManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 秒杀库存对账与开售预热
+ * 对每张未结束的秒杀券，Redis 剩余库存 + 下单用户数 应等于 数据库剩余库存 + 已落库订单数（都等于初始库存）：
+ * 扣减成功、消费中、消费失败的订单都只是在Redis内部从库存移到下单用户集合，数据库扣减库存与插入订单在同一事务中。
+ * 库存key丢失（如主从切换丢数据）时按数据库重建；两边合计不一致且连续两轮差值相同时修正Redis库存，
+ * 排除借调库存、读取非原子带来的瞬时差异。开售前 preloadAhead 内预热库存分片数、秒杀脚本和秒杀券缓存。
+ * 多节点部署时通过分布式锁保证同一时刻只有一个节点对账
+ */
+@Slf4j
+@Component
+public class SeckillStockReconciler {
+
+    private static final String LOCK_KEY = "lock:seckill:reconcile";
+
+    private final SeckillVoucherMapper seckillVoucherMapper;
+    private final VoucherOrderMapper voucherOrderMapper;
+    private final SeckillStockRouter seckillStockRouter;
+    private final SoldOutRegistry soldOutRegistry;
+    private final TieredCacheManager tieredCacheManager;
+    private final RedissonClient redissonClient;
+    private final LuaScriptRegistry luaScriptRegistry;
+    private final SeckillProperties.Reconcile properties;
+
+    /**
+     * 上一轮发现差异的秒杀券 -> 差值
+     */
+    private final Map<Long, Long> suspects = new ConcurrentHashMap<>();
+    /**
+     * 已预热的秒杀券
+     */
+    private final Set<Long> warmed = ConcurrentHashMap.newKeySet();
+
+    private final Counter rebuiltCounter;
+    private final Counter adjustedCounter;
+    private final Counter warmedCounter;
+
+    public SeckillStockReconciler(SeckillVoucherMapper seckillVoucherMapper, VoucherOrderMapper voucherOrderMapper,
+                                  SeckillStockRouter seckillStockRouter, SoldOutRegistry soldOutRegistry,
+                                  TieredCacheManager tieredCacheManager, RedissonClient redissonClient,
+                                  LuaScriptRegistry luaScriptRegistry, SeckillProperties seckillProperties,
+                                  MeterRegistry meterRegistry) {
+        this.seckillVoucherMapper = seckillVoucherMapper;
+        this.voucherOrderMapper = voucherOrderMapper;
+        this.seckillStockRouter = seckillStockRouter;
+        this.soldOutRegistry = soldOutRegistry;
+        this.tieredCacheManager = tieredCacheManager;
+        this.redissonClient = redissonClient;
+        this.luaScriptRegistry = luaScriptRegistry;
+        this.properties = seckillProperties.getReconcile();
+        this.rebuiltCounter = Counter.builder("seckill.reconcile.repaired").tag("type", "rebuild")
+                .register(meterRegistry);
+        this.adjustedCounter = Counter.builder("seckill.reconcile.repaired").tag("type", "adjust")
+                .register(meterRegistry);
+        this.warmedCounter = Counter.builder("seckill.reconcile.warmed").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${hm.seckill.reconcile.interval:60000}")
+    public void reconcile() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        RLock lock = redissonClient.getLock(LOCK_KEY);
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            long afterId = 0;
+            List<SeckillStockSnapshot> batch;
+            do {
+                batch = seckillVoucherMapper.selectActiveStock(now, afterId, properties.getBatchSize());
+                if (batch.isEmpty()) {
+                    break;
+                }
+                reconcileBatch(batch, now);
+                afterId = batch.get(batch.size() - 1).getVoucherId();
+            } while (batch.size() == properties.getBatchSize());
+        } catch (Exception e) {
+            log.error("秒杀库存对账失败", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void reconcileBatch(List<SeckillStockSnapshot> batch, LocalDateTime now) {
+        List<Long> voucherIds = new ArrayList<>(batch.size());
+        batch.forEach(snapshot -> voucherIds.add(snapshot.getVoucherId()));
+        Map<Long, long[]> redisStocks = seckillStockRouter.readStock(voucherIds);
+        LocalDateTime preloadBefore = now.plusNanos(properties.getPreloadAhead() * 1_000_000);
+        boolean preload = false;
+        for (SeckillStockSnapshot snapshot : batch) {
+            Long voucherId = snapshot.getVoucherId();
+            long[] redis = redisStocks.get(voucherId);
+            if (redis == null) {
+                // 库存key全部丢失，没有可比较的数据，直接按数据库重建
+                rebuild(snapshot);
+                suspects.remove(voucherId);
+            } else {
+                long drift = snapshot.getStock() + snapshot.getSold() - redis[0] - redis[1];
+                if (drift == 0) {
+                    suspects.remove(voucherId);
+                } else if (confirm(voucherId, drift)) {
+                    adjust(snapshot, drift, redis);
+                }
+            }
+            if (snapshot.getBeginTime().isAfter(now) && snapshot.getBeginTime().isBefore(preloadBefore)
+                    && warmed.add(voucherId)) {
+                warmUp(voucherId);
+                preload = true;
+            }
+        }
+        if (preload) {
+            luaScriptRegistry.preload();
+        }
+    }
+
+    /**
+     * 连续两轮差值相同才确认为真实差异
+     */
+    private boolean confirm(Long voucherId, long drift) {
+        Long previous = suspects.put(voucherId, drift);
+        if (previous == null || previous != drift) {
+            log.info("秒杀券库存存在差异，下一轮确认: voucherId={}, drift={}", voucherId, drift);
+            return false;
+        }
+        suspects.remove(voucherId);
+        return true;
+    }
+
+    private void rebuild(SeckillStockSnapshot snapshot) {
+        Long voucherId = snapshot.getVoucherId();
+        List<Long> userIds = voucherOrderMapper.selectUserIds(voucherId);
+        seckillStockRouter.rebuild(voucherId, snapshot.getStock(), userIds);
+        if (snapshot.getStock() > 0) {
+            soldOutRegistry.clear(voucherId);
+        }
+        rebuiltCounter.increment();
+        log.warn("秒杀券Redis库存缺失，已按数据库重建: voucherId={}, stock={}, users={}",
+                voucherId, snapshot.getStock(), userIds.size());
+    }
+
+    private void adjust(SeckillStockSnapshot snapshot, long drift, long[] redis) {
+        Long voucherId = snapshot.getVoucherId();
+        seckillStockRouter.adjustStock(voucherId, drift);
+        if (drift > 0) {
+            soldOutRegistry.clear(voucherId);
+        }
+        adjustedCounter.increment();
+        log.warn("秒杀券库存对账修正: voucherId={}, db(stock={}, sold={}), redis(stock={}, users={}), drift={}",
+                voucherId, snapshot.getStock(), snapshot.getSold(), redis[0], redis[1], drift);
+    }
+
+    /**
+     * 开售前预热：缓存分片数、秒杀券信息进入多级缓存
+     */
+    private void warmUp(Long voucherId) {
+        seckillStockRouter.shardCount(voucherId);
+        SeckillVoucher voucher = tieredCacheManager.<Long, SeckillVoucher>getCache("seckill-voucher").get(voucherId);
+        warmedCounter.increment();
+        log.info("秒杀券开售预热完成: voucherId={}, beginTime={}", voucherId,
+                voucher == null ? null : voucher.getBeginTime());
+    }
+}
@@ -0,0 +1,287 @@
+package com.hmdp.utils.seckill;
+
+import cn.hutool.core.util.StrUtil;
+import com.hmdp.properties.SeckillProperties;
+import com.hmdp.utils.LuaScriptRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.hmdp.utils.constans.RedisConstants.SECKILL_ORDER_KEY;
+import static com.hmdp.utils.constans.RedisConstants.SECKILL_SHARDS_KEY;
+import static com.hmdp.utils.constans.RedisConstants.SECKILL_STOCK_KEY;
+
+/**
+ * 秒杀库存分片路由
+ * 库存拆分到N个分片 seckill:stock:{voucherId:i}，下单用户集合同样分片 seckill:order:{voucherId:i}，
+ * hash tag 保证同一分片的两个key在同一slot，不同分片可落在不同节点。
+ * 用户固定路由到 userId % N 分片，一人一单只需检查本分片；本分片库存为空时从其他分片借调库存后重试。
+ * 分片数为1时使用原有的单key格式
+ */
+@Slf4j
+@Component
+public class SeckillStockRouter {
+
+    public static final long SUCCESS = 0;
+    public static final long STOCK_INSUFFICIENT = 1;
+    public static final long DUPLICATE_ORDER = 2;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final SeckillProperties seckillProperties;
+    private final LuaScriptRegistry luaScriptRegistry;
+
+    /**
+     * 秒杀券 -> 分片数，创建后不再变化
+     */
+    private final Map<Long, Integer> shardCounts = new ConcurrentHashMap<>();
+
+    private final Counter borrowCounter;
+
+    public SeckillStockRouter(StringRedisTemplate stringRedisTemplate, SeckillProperties seckillProperties,
+                              LuaScriptRegistry luaScriptRegistry, MeterRegistry meterRegistry) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.seckillProperties = seckillProperties;
+        this.luaScriptRegistry = luaScriptRegistry;
+        this.borrowCounter = Counter.builder("seckill.stock.borrow")
+                .description("本分片库存为空时从其他分片借调库存的次数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 初始化库存，按配置的分片数平均拆分，余数分给前面的分片
+     */
+    public void initStock(Long voucherId, int stock) {
+        initStock(voucherId, stock, Math.max(1, seckillProperties.getStockShards()));
+    }
+
+    private void initStock(Long voucherId, int stock, int shards) {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < shards; i++) {
+            values.put(stockKey(voucherId, i, shards), String.valueOf(stock / shards + (i < stock % shards ? 1 : 0)));
+        }
+        stringRedisTemplate.opsForValue().multiSet(values);
+        stringRedisTemplate.opsForValue().set(SECKILL_SHARDS_KEY + voucherId, String.valueOf(shards));
+        shardCounts.put(voucherId, shards);
+    }
+
+    /**
+     * 扣减库存并记录下单用户
+     * @return {@link #SUCCESS}、{@link #STOCK_INSUFFICIENT} 或 {@link #DUPLICATE_ORDER}
+     */
+    public long trySeckill(Long voucherId, Long userId) {
+        return trySeckill(voucherId, userId, null, null);
+    }
+
+    /**
+     * 扣减库存并记录下单用户，成功时同时把订单写入订单流或发件箱
+     * 借调分两步：脚本扣减借出分片，再增加本分片。第二步失败时把库存还给借出分片；
+     * 两步之间进程崩溃丢失的库存由 {@link SeckillStockReconciler} 对账补回
+     * @param orderId 预先生成的订单id，写入订单流时必传
+     * @param streamKey 订单流key，为null时不写入
+     */
+    public long trySeckill(Long voucherId, Long userId, Long orderId, String streamKey) {
+        int shards = shardCount(voucherId);
+        int home = homeShard(userId, shards);
+        long r = execute(voucherId, userId, orderId, home, shards, streamKey);
+        if (r != STOCK_INSUFFICIENT || shards == 1) {
+            return r;
+        }
+        // 本分片已空，依次从其他分片借调
+        String homeKey = stockKey(voucherId, home, shards);
+        for (int i = 1; i < shards; i++) {
+            String donorKey = stockKey(voucherId, (home + i) % shards, shards);
+            Long taken = luaScriptRegistry.execute(LuaScriptRegistry.SECKILL_BORROW, Collections.singletonList(donorKey),
+                    String.valueOf(seckillProperties.getBorrowBatch()));
+            if (taken == null || taken <= 0) {
+                continue;
+            }
+            borrowCounter.increment();
+            try {
+                stringRedisTemplate.opsForValue().increment(homeKey, taken);
+            } catch (RuntimeException e) {
+                giveBack(donorKey, taken);
+                throw e;
+            }
+            r = execute(voucherId, userId, orderId, home, shards, streamKey);
+            if (r != STOCK_INSUFFICIENT) {
+                return r;
+            }
+        }
+        return STOCK_INSUFFICIENT;
+    }
+
+    /**
+     * 借调的库存未能加到本分片时归还借出分片，归还也失败时等待对账修正
+     */
+    private void giveBack(String donorKey, long taken) {
+        try {
+            stringRedisTemplate.opsForValue().increment(donorKey, taken);
+        } catch (RuntimeException e) {
+            log.error("借调库存归还失败，等待对账修正: key={}, stock={}", donorKey, taken, e);
+        }
+    }
+
+    /**
+     * 订单最终失败时归还库存到用户所在分片，并移出下单用户集合；用户不在集合中时不归还，避免重复补偿
+     */
+    public void restoreStock(Long voucherId, Long userId) {
+        int shards = shardCount(voucherId);
+        int home = homeShard(userId, shards);
+        luaScriptRegistry.execute(LuaScriptRegistry.SECKILL_RESTORE,
+                Arrays.asList(stockKey(voucherId, home, shards), orderKey(voucherId, home, shards)), userId.toString());
+    }
+
+    /**
+     * 数据库库存已耗尽时只把用户移出下单用户集合，不归还库存：此时Redis库存多于数据库，归还的库存并不存在
+     */
+    public void releaseUser(Long voucherId, Long userId) {
+        int shards = shardCount(voucherId);
+        stringRedisTemplate.opsForSet().remove(orderKey(voucherId, homeShard(userId, shards), shards), userId.toString());
+    }
+
+    /**
+     * 批量读取Redis中的剩余库存和下单用户数（各分片之和）
+     * @return 优惠券id -> [剩余库存, 下单用户数]，库存key全部不存在时为null
+     */
+    public Map<Long, long[]> readStock(List<Long> voucherIds) {
+        List<Integer> shardList = new ArrayList<>(voucherIds.size());
+        for (Long voucherId : voucherIds) {
+            shardList.add(shardCount(voucherId));
+        }
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (int i = 0; i < voucherIds.size(); i++) {
+                int shards = shardList.get(i);
+                for (int shard = 0; shard < shards; shard++) {
+                    conn.get(stockKey(voucherIds.get(i), shard, shards));
+                    conn.sCard(orderKey(voucherIds.get(i), shard, shards));
+                }
+            }
+            return null;
+        });
+        Map<Long, long[]> stocks = new HashMap<>(voucherIds.size() * 2);
+        int index = 0;
+        for (int i = 0; i < voucherIds.size(); i++) {
+            boolean present = false;
+            long[] stock = new long[2];
+            for (int shard = 0; shard < shardList.get(i); shard++) {
+                Object value = results.get(index++);
+                Object size = results.get(index++);
+                if (value != null) {
+                    present = true;
+                    stock[0] += Long.parseLong(value.toString());
+                }
+                stock[1] += size == null ? 0 : ((Number) size).longValue();
+            }
+            stocks.put(voucherIds.get(i), present ? stock : null);
+        }
+        return stocks;
+    }
+
+    /**
+     * Redis数据丢失后按数据库重建库存和下单用户集合，沿用原有分片数
+     * @param stock 数据库剩余库存
+     * @param userIds 已落库订单的用户
+     */
+    public void rebuild(Long voucherId, int stock, List<Long> userIds) {
+        Integer shards = shardCounts.get(voucherId);
+        if (shards == null) {
+            String value = stringRedisTemplate.opsForValue().get(SECKILL_SHARDS_KEY + voucherId);
+            shards = StrUtil.isBlank(value) ? Math.max(1, seckillProperties.getStockShards()) : Integer.parseInt(value);
+        }
+        int count = shards;
+        initStock(voucherId, stock, count);
+        if (userIds.isEmpty()) {
+            return;
+        }
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (Long userId : userIds) {
+                conn.sAdd(orderKey(voucherId, homeShard(userId, count), count), userId.toString());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 按差值修正剩余库存，增加时平均分到各分片，减少时依次从有库存的分片扣除，分片库存不足时只扣到0
+     */
+    public void adjustStock(Long voucherId, long delta) {
+        int shards = shardCount(voucherId);
+        if (delta > 0) {
+            for (int i = 0; i < shards; i++) {
+                long part = delta / shards + (i < delta % shards ? 1 : 0);
+                if (part > 0) {
+                    stringRedisTemplate.opsForValue().increment(stockKey(voucherId, i, shards), part);
+                }
+            }
+            return;
+        }
+        long remaining = -delta;
+        for (int i = 0; i < shards && remaining > 0; i++) {
+            // 读取与扣减在脚本中原子完成，不会与并发下单一起把分片扣成负数
+            Long taken = luaScriptRegistry.execute(LuaScriptRegistry.SECKILL_ADJUST,
+                    Collections.singletonList(stockKey(voucherId, i, shards)), String.valueOf(remaining));
+            if (taken != null) {
+                remaining -= taken;
+            }
+        }
+    }
+
+    /**
+     * 分片数，以 seckill:shards 记录为准。记录缺失时，单key库存存在说明是未分片的旧秒杀券；
+     * 两者都不存在说明库存未初始化或已丢失，返回1但不缓存，下单读到空库存，对账任务重建后再读取真实分片数
+     */
+    public int shardCount(Long voucherId) {
+        Integer shards = shardCounts.get(voucherId);
+        if (shards != null) {
+            return shards;
+        }
+        String value = stringRedisTemplate.opsForValue().get(SECKILL_SHARDS_KEY + voucherId);
+        if (StrUtil.isNotBlank(value)) {
+            shards = Integer.parseInt(value);
+            shardCounts.put(voucherId, shards);
+            return shards;
+        }
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(SECKILL_STOCK_KEY + voucherId))) {
+            shardCounts.put(voucherId, 1);
+        }
+        return 1;
+    }
+
+    private long execute(Long voucherId, Long userId, Long orderId, int shard, int shards, String streamKey) {
+        List<String> keys = new ArrayList<>(3);
+        keys.add(stockKey(voucherId, shard, shards));
+        keys.add(orderKey(voucherId, shard, shards));
+        if (streamKey != null) {
+            keys.add(streamKey);
+        }
+        Long result = luaScriptRegistry.execute(LuaScriptRegistry.SECKILL, keys, userId.toString(), voucherId.toString(),
+                String.valueOf(orderId));
+        return result == null ? STOCK_INSUFFICIENT : result;
+    }
+
+    static int homeShard(Long userId, int shards) {
+        return (int) Math.floorMod(userId, (long) shards);
+    }
+
+    static String stockKey(Long voucherId, int shard, int shards) {
+        return shards == 1 ? SECKILL_STOCK_KEY + voucherId : SECKILL_STOCK_KEY + "{" + voucherId + ":" + shard + "}";
+    }
+
+    static String orderKey(Long voucherId, int shard, int shards) {
+        return shards == 1 ? SECKILL_ORDER_KEY + voucherId : SECKILL_ORDER_KEY + "{" + voucherId + ":" + shard + "}";
+    }
+}
@@ -0,0 +1,23 @@
+package com.hmdp.utils.seckill;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 对账时数据库侧的秒杀券库存快照
+ */
+@Data
+public class SeckillStockSnapshot {
+    private Long voucherId;
+    /**
+     * 数据库剩余库存
+     */
+    private Integer stock;
+    /**
+     * 已落库的订单数
+     */
+    private Long sold;
+    private LocalDateTime beginTime;
+    private LocalDateTime endTime;
+}
@@ -0,0 +1,59 @@
+package com.hmdp.utils.seckill;
+
+import com.hmdp.entity.SeckillVoucher;
+import com.hmdp.utils.cache.TieredCache;
+import com.hmdp.utils.cache.TieredCacheManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import top.javatool.canal.client.annotation.CanalTable;
+import top.javatool.canal.client.handler.EntryHandler;
+
+import javax.annotation.Resource;
+import java.util.Objects;
+
+/**
+ * 监听秒杀券表变更，失效秒杀券多级缓存
+ * 缓存只用于秒杀时间校验，下单扣减库存引起的更新不处理，避免每笔订单都广播失效
+ */
+@CanalTable(value = "tb_seckill_voucher")
+@Component
+@Slf4j
+public class SeckillVoucherHandler implements EntryHandler<SeckillVoucher> {
+
+    @Resource
+    private TieredCacheManager tieredCacheManager;
+
+    @Override
+    public void insert(SeckillVoucher voucher) {
+        log.debug("Handling seckill voucher insert event, voucher id: {}", voucher.getVoucherId());
+        // 清除可能存在的不存在标记
+        invalidate(voucher.getVoucherId());
+    }
+
+    @Override
+    public void update(SeckillVoucher before, SeckillVoucher after) {
+        // before中只有发生变化的列，未变化的列为null
+        if (changed(before.getBeginTime(), after.getBeginTime()) || changed(before.getEndTime(), after.getEndTime())) {
+            log.debug("Handling seckill voucher time window update, voucher id: {}", after.getVoucherId());
+            invalidate(after.getVoucherId());
+        }
+    }
+
+    @Override
+    public void delete(SeckillVoucher voucher) {
+        log.debug("Handling seckill voucher delete event, voucher id: {}", voucher.getVoucherId());
+        invalidate(voucher.getVoucherId());
+    }
+
+    private static boolean changed(Object before, Object after) {
+        return before != null && !Objects.equals(before, after);
+    }
+
+    private void invalidate(Long voucherId) {
+        TieredCache<Long, SeckillVoucher> cache = tieredCacheManager.getCache("seckill-voucher");
+        if (cache != null) {
+            // 失效本地和Redis缓存，并通知其他节点
+            cache.invalidate(voucherId);
+        }
+    }
+}
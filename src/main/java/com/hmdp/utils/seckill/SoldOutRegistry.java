@@ -0,0 +1,131 @@
+package com.hmdp.utils.seckill;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.hmdp.properties.SeckillProperties;
+import com.hmdp.utils.cache.LongHashSet;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 秒杀券本地售罄标记
+ * Lua脚本返回库存不足后标记售罄并广播给其他节点，之后的请求直接在内存中拒绝，不再访问数据库和Redis；
+ * 库存回补时清除标记并广播。消息格式：节点id|S(售罄)或C(清除)|秒杀券id
+ */
+@Slf4j
+@Component
+public class SoldOutRegistry implements MessageListener {
+
+    private static final char SEPARATOR = '|';
+    private static final String SOLD_OUT = "S";
+    private static final String CLEAR = "C";
+
+    private final String nodeId = IdUtil.fastSimpleUUID();
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final String channel;
+    private final LongHashSet soldOut;
+
+    private final Counter rejectedCounter;
+
+    public SoldOutRegistry(StringRedisTemplate stringRedisTemplate,
+                           RedisMessageListenerContainer listenerContainer,
+                           SeckillProperties seckillProperties,
+                           MeterRegistry meterRegistry) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.channel = seckillProperties.getSoldOutChannel();
+        this.soldOut = new LongHashSet(seckillProperties.getSoldOutCapacity());
+        this.rejectedCounter = Counter.builder("seckill.sold-out.rejected")
+                .description("因本地售罄标记直接拒绝的秒杀请求数")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+    }
+
+    /**
+     * 是否已售罄，命中时计入拒绝数
+     */
+    public boolean isSoldOut(Long voucherId) {
+        if (soldOut.contains(voucherId)) {
+            rejectedCounter.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 标记售罄并通知其他节点
+     */
+    public void markSoldOut(Long voucherId) {
+        if (apply(SOLD_OUT, voucherId)) {
+            send(SOLD_OUT, voucherId);
+        }
+    }
+
+    /**
+     * 库存回补后清除售罄标记并通知其他节点
+     */
+    public void clear(Long voucherId) {
+        apply(CLEAR, voucherId);
+        send(CLEAR, voucherId);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        List<String> parts = StrUtil.split(body, SEPARATOR, 3);
+        if (parts.size() != 3) {
+            log.warn("无法解析的售罄广播消息: {}", body);
+            return;
+        }
+        if (nodeId.equals(parts.get(0))) {
+            return;
+        }
+        try {
+            apply(parts.get(1), Long.parseLong(parts.get(2)));
+        } catch (NumberFormatException e) {
+            log.warn("售罄广播消息id错误: {}", body);
+        }
+    }
+
+    /**
+     * @return 本地状态是否发生变化
+     */
+    private boolean apply(String action, long voucherId) {
+        if (CLEAR.equals(action)) {
+            return soldOut.remove(voucherId);
+        }
+        if (soldOut.contains(voucherId)) {
+            return false;
+        }
+        if (!soldOut.add(voucherId)) {
+            log.warn("本地售罄标记已满，秒杀券{}不再标记", voucherId);
+            return false;
+        }
+        return true;
+    }
+
+    private void send(String action, Long voucherId) {
+        try {
+            stringRedisTemplate.convertAndSend(channel, nodeId + SEPARATOR + action + SEPARATOR + voucherId);
+        } catch (Exception e) {
+            log.error("发送售罄广播失败，voucherId: {}", voucherId, e);
+        }
+    }
+}
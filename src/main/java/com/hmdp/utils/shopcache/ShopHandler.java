@@ -1,8 +1,8 @@
 package com.hmdp.utils.shopcache;
 
-import com.github.benmanes.caffeine.cache.Cache;
 import com.hmdp.entity.Shop;
-import com.hmdp.service.IShopService;
+import com.hmdp.utils.cache.TieredCache;
+import com.hmdp.utils.cache.TieredCacheManager;
 import com.hmdp.utils.es.ShopSyncService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,8 +13,6 @@ import top.javatool.canal.client.handler.EntryHandler;
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 
-import static com.hmdp.utils.constans.RedisConstants.CACHE_SHOP_KEY;
-
 @CanalTable(value = "tb_shop")
 @Component
 @Slf4j
@@ -25,7 +23,7 @@ public class ShopHandler implements EntryHandler<Shop>{
     private ShopRedisHandler redisHandler;
 
     @Resource
-    private Cache<String, Object> shopCache;
+    private TieredCacheManager tieredCacheManager;
 
     @Autowired
     private ShopSyncService shopSyncService;
@@ -39,9 +37,8 @@ public class ShopHandler implements EntryHandler<Shop>{
     public void insert(Shop shop) {
         log.info("Handling shop insert event, shop id: {}", shop.getId());
         log.debug("Shop data for insert: {}", shop);
-        // 写数据到JVM进程缓存
-        String key = CACHE_SHOP_KEY + shop.getId();
-        shopCache.put(key , shop);
+        // 写数据到JVM进程缓存，并通知其他节点失效
+        shopCache().put(shop.getId(), shop);
         // 写数据到redis
         redisHandler.saveShop(shop);
         // 写数据到 es
@@ -62,9 +59,8 @@ public class ShopHandler implements EntryHandler<Shop>{
         log.info("Handling shop update event, shop id: {}", after.getId());
         log.debug("Shop data before update: {}", before);
         log.debug("Shop data after update: {}", after);
-        // 写数据到JVM进程缓存
-        String key = CACHE_SHOP_KEY + after.getId();
-        shopCache.put(key, after);
+        // 写数据到JVM进程缓存，并通知其他节点失效
+        shopCache().put(after.getId(), after);
         // 写数据到redis
         redisHandler.saveShop(after);
         // 写数据到 es
@@ -84,9 +80,8 @@ public class ShopHandler implements EntryHandler<Shop>{
     public void delete(Shop shop) {
         log.info("Handling shop delete event, shop id: {}", shop.getId());
         log.debug("Shop data for delete: {}", shop);
-        // 删除数据到JVM进程缓存
-        String key = CACHE_SHOP_KEY + shop.getId();
-        shopCache.invalidate(key);
+        // 删除数据到JVM进程缓存，并通知其他节点失效
+        shopCache().evictLocal(shop.getId());
         // 删除数据到redis
         redisHandler.deleteShopById(shop.getId());
         // 删除数据到 es
@@ -101,4 +96,8 @@ public class ShopHandler implements EntryHandler<Shop>{
             log.warn("shopSyncService is null, skipping ES sync for shop delete, id: {}", shop.getId());
         }
     }
-}
\ No newline at end of file
+
+    private TieredCache<Long, Shop> shopCache() {
+        return tieredCacheManager.getCache("shop");
+    }
+}
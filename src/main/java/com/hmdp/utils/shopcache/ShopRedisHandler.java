@@ -1,39 +1,31 @@
 package com.hmdp.utils.shopcache;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-
 import com.github.benmanes.caffeine.cache.Cache;
 import com.hmdp.entity.Shop;
 import com.hmdp.service.IShopService;
+import com.hmdp.utils.CacheClient;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static com.hmdp.utils.constans.RedisConstants.CACHE_SHOP_KEY;
+import static com.hmdp.utils.constans.RedisConstants.CACHE_SHOP_TTL;
 
 @Component
 public class ShopRedisHandler implements InitializingBean {
 
+    @Lazy
     @Autowired
-    private StringRedisTemplate stringRedisTemplate;
+    private CacheClient cacheClient;
 
     @Autowired
     private IShopService shopService;
 
-
-    private static final ObjectMapper MAPPER = new ObjectMapper();
-    
-    static {
-        // 注册JavaTimeModule以支持LocalDateTime等Java 8时间类型
-        MAPPER.registerModule(new JavaTimeModule());
-    }
-
     @Resource
     private Cache<String, Object> shopCache;
 
@@ -47,13 +39,11 @@ public class ShopRedisHandler implements InitializingBean {
             List<Shop> shopList = shopService.list();
             // 2.放入缓存
             for (Shop shop : shopList) {
-                // 2.1.item序列化为JSON
-                String json = MAPPER.writeValueAsString(shop);
-                // 2.2 存入caffeind
+                // 2.1 存入caffeind
                 String key = CACHE_SHOP_KEY + shop.getId();
                 shopCache.put(key, shop);
-                // 2.2.存入redis
-                stringRedisTemplate.opsForValue().set(key, json);
+                // 2.2.按逻辑过期格式存入redis
+                cacheClient.setWithLogicalExpire(key, shop, CACHE_SHOP_TTL, TimeUnit.MINUTES);
             }
         } catch (Exception e) {
             // 如果出现任何异常（如表不存在），只打印日志，不中断应用启动
@@ -72,18 +62,17 @@ public class ShopRedisHandler implements InitializingBean {
 //        }
     }
 
+    /**
+     * Canal变更写回，直接写入变更数据，重建耗时记为0；
+     * 概率提前刷新所需的耗时在逻辑过期后由 CacheClient 重建时记录
+     */
     public void saveShop(Shop shop) {
-        try {
-            String json = MAPPER.writeValueAsString(shop);
-            String key = CACHE_SHOP_KEY  + shop.getId();
-            stringRedisTemplate.opsForValue().set(key , json);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException(e);
-        }
+        String key = CACHE_SHOP_KEY  + shop.getId();
+        cacheClient.setWithLogicalExpire(key, shop, CACHE_SHOP_TTL, TimeUnit.MINUTES);
     }
 
     public void deleteShopById(Long id) {
         String key = CACHE_SHOP_KEY  + id;
-        stringRedisTemplate.delete(key);
+        cacheClient.delete(key);
     }
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+---
+--- 清除负缓存bitmap中的位
+--- 只清除已存在的bitmap，避免创建没有过期时间的空key
+---KEYS 各代bitmap的key
+---ARGV[1] 位偏移（id）
+for i, key in ipairs(KEYS) do
+  if redis.call('exists', key) == 1 then
+    redis.call('setbit', key, ARGV[1], 0)
+  end
+end
+return 0
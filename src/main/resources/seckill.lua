@@ -4,29 +4,34 @@
 --- DateTime: 2025/9/28 15:44
 ---
 ---参数列表
----1. 优惠券id
-local voucherId = ARGV[1]
----2. 用户id
-local userId = ARGV[2]
----3. 库存id
-local stockKey = 'seckill:stock:' .. voucherId
----4. 订单id
-local orderId = 'seckill:order:' .. voucherId
+---KEYS[1] 库存key，分片时为 seckill:stock:{voucherId:分片号}
+local stockKey = KEYS[1]
+---KEYS[2] 订单用户集合key，与库存key同一分片
+local orderKey = KEYS[2]
+---KEYS[3] 可选，订单流或发件箱key，传入时下单消息与扣减库存原子写入
+local streamKey = KEYS[3]
+---ARGV[1] 用户id
+local userId = ARGV[1]
+---ARGV[2] 优惠券id
+local voucherId = ARGV[2]
+---ARGV[3] 预先生成的订单id，写入订单流时使用
+local orderId = ARGV[3]
 
 ---业务
----1.从redis查询库存
+---1. 查看用户是否购买过，购买过返回失败
+if(redis.call('sismember', orderKey, userId) == 1) then
+  return 2
+end
+---2.从redis查询库存，判断库存是否充足
 local stock = redis.call('get', stockKey)
----2. 判断库存是否充足
 if(not stock or tonumber(stock) <= 0) then
   return 1
 end
----3. 如果充足，减库存
----3.1 查看用户是否购买过
----3.2 如果购买过，返回失败
-if(redis.call('sismember', orderId, userId) == 1) then
-  return 2
-end
----3.3 如果未购买过，减库存，下单，返回成功
+---3. 如果充足，减库存，下单，返回成功
 redis.call('decr', stockKey)
-redis.call('sadd', orderId, userId)
-return 0
\ No newline at end of file
+redis.call('sadd', orderKey, userId)
+---4. 写入订单流
+if(streamKey) then
+  redis.call('xadd', streamKey, '*', 'userId', userId, 'voucherId', voucherId, 'orderId', orderId)
+end
+return 0
@@ -0,0 +1,11 @@
+---
+--- 对账修正时从一个库存分片扣减库存，不扣成负数
+---KEYS[1] 库存key
+---ARGV[1] 最多扣减数量
+local stock = tonumber(redis.call('get', KEYS[1]))
+if(not stock or stock <= 0) then
+  return 0
+end
+local take = math.min(tonumber(ARGV[1]), stock)
+redis.call('decrby', KEYS[1], take)
+return take
@@ -0,0 +1,12 @@
+---
+--- 从其他库存分片借调库存
+---KEYS[1] 被借调的库存key
+---ARGV[1] 单次最多借调数量
+local stock = tonumber(redis.call('get', KEYS[1]))
+if(not stock or stock <= 0) then
+  return 0
+end
+---最多借走一半，避免该分片的用户立刻又要回借
+local take = math.min(tonumber(ARGV[1]), math.ceil(stock / 2))
+redis.call('decrby', KEYS[1], take)
+return take
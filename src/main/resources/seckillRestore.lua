@@ -0,0 +1,10 @@
+---
+--- 订单最终失败时归还库存并移出下单用户集合，用户可重新抢购
+---KEYS[1] 库存key
+---KEYS[2] 订单用户集合key，与库存key同一分片
+---ARGV[1] 用户id
+if(redis.call('srem', KEYS[2], ARGV[1]) == 1) then
+  redis.call('incr', KEYS[1])
+  return 1
+end
+return 0
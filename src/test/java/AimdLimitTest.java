@@ -0,0 +1,38 @@
+import com.hmdp.properties.SeckillProperties;
+import com.hmdp.utils.consumer.AimdLimit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AimdLimitTest {
+
+    @Test
+    void increaseOnBacklogAndDecreaseOnSlowCommits() {
+        SeckillProperties.OrderAdaptive properties = new SeckillProperties.OrderAdaptive();
+        AimdLimit limit = new AimdLimit(properties, 100, 5, 1);
+        assertEquals(20, limit.getPrefetch());
+
+        // 耗时正常、无积压时保持
+        assertFalse(limit.update(50, 0));
+
+        // 积压时加性增大
+        assertTrue(limit.update(50, 5000));
+        assertEquals(120, limit.getRate(), 1e-9);
+        assertEquals(6, limit.getConcurrency());
+
+        // 超过目标p99时乘性减小，即使仍有积压
+        assertTrue(limit.update(500, 5000));
+        assertEquals(84, limit.getRate(), 1e-9);
+        assertEquals(4, limit.getConcurrency());
+        assertEquals(21, limit.getPrefetch());
+
+        // 不低于下限
+        for (int i = 0; i < 20; i++) {
+            limit.update(500, 0);
+        }
+        assertEquals(properties.getMinRate(), limit.getRate(), 1e-9);
+        assertEquals(properties.getMinConcurrency(), limit.getConcurrency());
+    }
+}
@@ -0,0 +1,61 @@
+import cn.hutool.json.JSONUtil;
+import com.hmdp.entity.Shop;
+import com.hmdp.utils.cache.CacheEnvelope;
+import com.hmdp.utils.cache.serializer.CacheValueSerializer;
+import com.hmdp.utils.cache.serializer.SmileCacheValueSerializer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CacheEnvelopeTest {
+
+    private final CacheValueSerializer serializer = new SmileCacheValueSerializer();
+
+    @Test
+    void roundTrip() {
+        Shop shop = new Shop().setId(1L).setName("103茶餐厅").setX(120.149192).setY(30.316078)
+                .setAvgPrice(80L).setCreateTime(LocalDateTime.of(2021, 12, 22, 18, 10, 39));
+
+        byte[] payload = serializer.serialize(shop);
+        byte[] raw = CacheEnvelope.encode(serializer.id(), 1000L, 0L, payload);
+        CacheEnvelope envelope = CacheEnvelope.decode(raw);
+
+        assertEquals(serializer.id(), envelope.getSerializerId());
+        assertEquals(1000L, envelope.getExpireAt());
+        assertFalse(envelope.isExpired(999L));
+        assertTrue(envelope.isExpired(1000L));
+        assertEquals(shop, envelope.getValue(serializer, Shop.class));
+        assertTrue(payload.length < JSONUtil.toJsonStr(shop).getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    void nullValueAndLegacyJson() {
+        CacheEnvelope envelope = CacheEnvelope.decode(CacheEnvelope.encode(serializer.id(), 1L, 0L, null));
+        assertTrue(envelope.isNullValue());
+        assertNull(envelope.getValue(serializer, Shop.class));
+
+        assertNull(CacheEnvelope.decode("{\"id\":1,\"name\":\"103茶餐厅\"}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void earlyRefreshProbability() {
+        long expireAt = 10_000L;
+        CacheEnvelope envelope = CacheEnvelope.decode(CacheEnvelope.encode(serializer.id(), expireAt, 100L, null));
+        assertEquals(100, envelope.getDelta());
+
+        // 离过期很远时不刷新，已过期时一定刷新
+        assertFalse(envelope.shouldRefresh(0L, 1.0, 0.01));
+        assertTrue(envelope.shouldRefresh(expireAt, 1.0, 1.0));
+        // 离过期50ms，-ln(0.5)*100≈69ms，会提前刷新；-ln(0.9)*100≈10ms，不会
+        assertTrue(envelope.shouldRefresh(expireAt - 50, 1.0, 0.5));
+        assertFalse(envelope.shouldRefresh(expireAt - 50, 1.0, 0.9));
+        // beta为0时只在过期后刷新
+        assertFalse(envelope.shouldRefresh(expireAt - 1, 0, 0.001));
+    }
+}
@@ -0,0 +1,52 @@
+import com.hmdp.properties.CacheProperties;
+import com.hmdp.utils.cache.CacheRebuildScheduler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CacheRebuildSchedulerTest {
+
+    @Test
+    void dedupeAndDiscardWhenFull() throws InterruptedException {
+        CacheProperties properties = new CacheProperties();
+        properties.getRebuild().setThreads(1);
+        properties.getRebuild().setQueueCapacity(1);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CacheRebuildScheduler scheduler = new CacheRebuildScheduler(properties, registry);
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        AtomicInteger runs = new AtomicInteger();
+        Runnable blocking = () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            runs.incrementAndGet();
+            done.countDown();
+        };
+
+        assertTrue(scheduler.submit("a", blocking));
+        // 同一key正在重建，合并
+        assertFalse(scheduler.submit("a", blocking));
+        assertTrue(scheduler.isDuplicate("a"));
+        // 占满队列后丢弃
+        assertTrue(scheduler.submit("b", blocking));
+        assertFalse(scheduler.submit("c", blocking));
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, runs.get());
+        assertEquals(2.0, registry.get("cache.rebuild.deduplicated").counter().count());
+        assertEquals(1.0, registry.get("cache.rebuild.rejected").counter().count());
+        scheduler.shutdown();
+    }
+}
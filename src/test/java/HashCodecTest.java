@@ -0,0 +1,49 @@
+import com.hmdp.dto.UserDTO;
+import com.hmdp.entity.Shop;
+import com.hmdp.utils.cache.HashCodec;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class HashCodecTest {
+
+    @Test
+    void roundTripShop() {
+        Shop shop = new Shop()
+                .setId(1L)
+                .setName("103茶餐厅")
+                .setX(120.149192)
+                .setScore(37)
+                .setCreateTime(LocalDateTime.of(2021, 12, 22, 18, 10, 39));
+
+        HashCodec<Shop> codec = HashCodec.of(Shop.class);
+        Map<String, String> hash = codec.encode(shop);
+        assertEquals("2021-12-22 18:10:39", hash.get("createTime"));
+        assertFalse(hash.containsKey("address"));
+
+        assertEquals(shop, codec.decode(hash));
+    }
+
+    @Test
+    void decodeIgnoresUnknownFieldsAndAcceptsIsoTime() {
+        Map<Object, Object> hash = new HashMap<>();
+        hash.put("id", "2");
+        hash.put("updateTime", "2022-01-02T03:04:05");
+        hash.put("avgPrice", "");
+        hash.put("jwttoken", "abc");
+
+        Shop shop = HashCodec.of(Shop.class).decode(hash);
+        assertEquals(2L, shop.getId());
+        assertEquals(LocalDateTime.of(2022, 1, 2, 3, 4, 5), shop.getUpdateTime());
+        assertNull(shop.getAvgPrice());
+
+        UserDTO user = HashCodec.of(UserDTO.class).decode(hash);
+        assertEquals(2L, user.getId());
+    }
+}
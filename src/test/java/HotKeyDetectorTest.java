@@ -0,0 +1,52 @@
+import com.hmdp.utils.cache.hotkey.HotKeyDetector;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HotKeyDetectorTest {
+
+    @Test
+    void promoteAndDemoteAcrossWindows() {
+        HotKeyDetector detector = new HotKeyDetector(2, 4, 1024, 10, 10);
+        for (int i = 0; i < 9; i++) {
+            assertFalse(detector.record("cache:shop:1"));
+        }
+        assertTrue(detector.record("cache:shop:1"));
+        assertFalse(detector.isHot("cache:shop:2"));
+
+        // 仍在滑动窗口内
+        assertTrue(detector.rotate().isEmpty());
+        assertTrue(detector.isHot("cache:shop:1"));
+        // 两个窗口后访问记录全部滑出
+        assertEquals(Collections.singletonList("cache:shop:1"), detector.rotate());
+        assertFalse(detector.isHot("cache:shop:1"));
+    }
+
+    @Test
+    void topKKeepsHottest() {
+        HotKeyDetector detector = new HotKeyDetector(1, 4, 1024, 1, 1);
+        detector.record("a");
+        for (int i = 0; i < 3; i++) {
+            detector.record("b");
+        }
+        assertTrue(detector.isHot("b"));
+        assertFalse(detector.isHot("a"));
+        assertEquals("b", detector.snapshot().get(0).getKey());
+    }
+
+    @Test
+    void hashCodeCollisionsDoNotShareCounters() {
+        // "Aa" 与 "BB" 的 String.hashCode 相同
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        HotKeyDetector detector = new HotKeyDetector(1, 4, 1024, 10, 10);
+        for (int i = 0; i < 10; i++) {
+            detector.record("Aa");
+        }
+        assertTrue(detector.isHot("Aa"));
+        assertFalse(detector.record("BB"));
+    }
+}
@@ -0,0 +1,30 @@
+import com.hmdp.utils.cache.LongHashSet;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LongHashSetTest {
+
+    @Test
+    void addContainsRemoveUntilFull() {
+        LongHashSet set = new LongHashSet(4);
+        for (long i = 0; i < 4; i++) {
+            assertTrue(set.add(i * 16));
+        }
+        // 已存在的值不占用容量
+        assertTrue(set.add(0));
+        assertFalse(set.add(100));
+        assertTrue(set.isFull());
+
+        // 删除后探测链回移，其余值仍可查到
+        assertTrue(set.remove(16));
+        assertFalse(set.contains(16));
+        assertTrue(set.contains(0));
+        assertTrue(set.contains(32));
+        assertTrue(set.contains(48));
+        assertEquals(3, set.size());
+        assertTrue(set.add(100));
+    }
+}
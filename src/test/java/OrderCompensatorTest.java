@@ -0,0 +1,32 @@
+import com.hmdp.utils.seckill.OrderCompensator;
+import com.hmdp.utils.seckill.OrderStatusCache;
+import com.hmdp.utils.seckill.SeckillRequestGuard;
+import com.hmdp.utils.seckill.SeckillStockRouter;
+import com.hmdp.utils.seckill.SoldOutRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class OrderCompensatorTest {
+
+    @Test
+    void soldOutInDatabaseDoesNotRestoreRedisStock() {
+        SeckillStockRouter router = mock(SeckillStockRouter.class);
+        SoldOutRegistry soldOutRegistry = mock(SoldOutRegistry.class);
+        OrderStatusCache statusCache = mock(OrderStatusCache.class);
+        SeckillRequestGuard guard = mock(SeckillRequestGuard.class);
+        OrderCompensator compensator = new OrderCompensator(router, soldOutRegistry, statusCache, guard);
+
+        compensator.compensateSoldOut(3L, 1L, 2L);
+
+        verify(statusCache).update(3L, OrderStatusCache.Status.FAILED);
+        verify(guard).evict(1L, 2L);
+        verify(router).releaseUser(2L, 1L);
+        verify(soldOutRegistry).markSoldOut(2L);
+        // Redis库存已多于数据库，不能再归还，也不能清除售罄标记
+        verify(router, never()).restoreStock(2L, 1L);
+        verify(soldOutRegistry, never()).clear(2L);
+    }
+}
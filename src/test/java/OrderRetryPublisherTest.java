@@ -0,0 +1,87 @@
+import com.hmdp.properties.SeckillProperties;
+import com.hmdp.utils.consumer.OrderRetryPublisher;
+import com.hmdp.utils.message.OrderMessage;
+import com.hmdp.utils.seckill.OrderCompensator;
+import com.hmdp.utils.seckill.OrderStatusCache;
+import com.hmdp.utils.seckill.SeckillRequestGuard;
+import com.hmdp.utils.seckill.SeckillStockRouter;
+import com.hmdp.utils.seckill.SoldOutRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class OrderRetryPublisherTest {
+
+    @Test
+    void delayThenDeadLetterWithStockRestore() {
+        RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+        // broker确认所有发布
+        doAnswer(invocation -> {
+            invocation.<CorrelationData>getArgument(3).getFuture().set(new CorrelationData.Confirm(true, null));
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+        SeckillStockRouter router = mock(SeckillStockRouter.class);
+        Jackson2JsonMessageConverter converter = new Jackson2JsonMessageConverter();
+        SeckillProperties properties = new SeckillProperties();
+        OrderStatusCache statusCache = mock(OrderStatusCache.class);
+        OrderRetryPublisher publisher = new OrderRetryPublisher(rabbitTemplate, converter,
+                new OrderCompensator(router, mock(SoldOutRegistry.class), statusCache,
+                        mock(SeckillRequestGuard.class)), properties,
+                new SimpleMeterRegistry());
+        Message message = converter.toMessage(new OrderMessage(1L, 2L, 3L), new MessageProperties());
+
+        publisher.retryOrDeadLetter(message);
+        ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+        verify(rabbitTemplate).send(eq(OrderRetryPublisher.RETRY_EXCHANGE), eq("retry.1"), sent.capture(),
+                any(CorrelationData.class));
+        assertEquals(1, (Integer) sent.getValue().getMessageProperties().getHeader(OrderRetryPublisher.RETRY_COUNT_HEADER));
+        verify(router, never()).restoreStock(2L, 1L);
+
+        message.getMessageProperties().setHeader(OrderRetryPublisher.RETRY_COUNT_HEADER,
+                properties.getOrderRetry().getDelays().size());
+        publisher.retryOrDeadLetter(message);
+        verify(rabbitTemplate).send(eq(OrderRetryPublisher.RETRY_EXCHANGE), eq(OrderRetryPublisher.DEAD_ROUTING_KEY),
+                eq(message), any(CorrelationData.class));
+        verify(router).restoreStock(2L, 1L);
+        verify(statusCache).update(3L, OrderStatusCache.Status.FAILED);
+    }
+
+    @Test
+    void nackedDeadLetterFailsWithoutStockRestore() {
+        RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+        doAnswer(invocation -> {
+            invocation.<CorrelationData>getArgument(3).getFuture().set(new CorrelationData.Confirm(false, "nack"));
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+        SeckillStockRouter router = mock(SeckillStockRouter.class);
+        Jackson2JsonMessageConverter converter = new Jackson2JsonMessageConverter();
+        SeckillProperties properties = new SeckillProperties();
+        OrderRetryPublisher publisher = new OrderRetryPublisher(rabbitTemplate, converter,
+                new OrderCompensator(router, mock(SoldOutRegistry.class), mock(OrderStatusCache.class),
+                        mock(SeckillRequestGuard.class)), properties,
+                new SimpleMeterRegistry());
+        Message message = converter.toMessage(new OrderMessage(1L, 2L, 3L), new MessageProperties());
+        message.getMessageProperties().setHeader(OrderRetryPublisher.RETRY_COUNT_HEADER,
+                properties.getOrderRetry().getDelays().size());
+
+        // 未被确认时抛出异常，由调用方重新入队，不做补偿
+        assertThrows(AmqpException.class, () -> publisher.retryOrDeadLetter(message));
+        verify(router, never()).restoreStock(2L, 1L);
+    }
+}
@@ -0,0 +1,47 @@
+import com.hmdp.dto.Result;
+import com.hmdp.properties.SeckillProperties;
+import com.hmdp.utils.seckill.SeckillRequestGuard;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class SeckillRequestGuardTest {
+
+    @Test
+    void repeatClicksAnsweredLocallyAndThrottled() {
+        SeckillProperties properties = new SeckillProperties();
+        properties.getGuard().setUserRate(1.0);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SeckillRequestGuard guard = new SeckillRequestGuard(properties, registry);
+
+        assertNull(guard.check(1L, 10L));
+        Result ok = Result.ok("123");
+        guard.record(1L, 10L, ok);
+        // 抢到后重复点击返回同一结果，不消耗令牌
+        assertSame(ok, guard.check(1L, 10L));
+
+        // 令牌已用完，其他秒杀券的请求被限流
+        assertEquals(SeckillRequestGuard.THROTTLED_MSG, guard.check(1L, 20L).getErrorMsg());
+        // 库存不足等可能变化的结果不记录
+        guard.record(1L, 20L, Result.fail("库存不足"));
+        assertEquals(SeckillRequestGuard.THROTTLED_MSG, guard.check(1L, 20L).getErrorMsg());
+
+        assertEquals(1.0, registry.counter("seckill.guard.requests", "outcome", "passed").count());
+        assertEquals(1.0, registry.counter("seckill.guard.requests", "outcome", "deduplicated").count());
+        assertEquals(2.0, registry.counter("seckill.guard.requests", "outcome", "throttled").count());
+    }
+
+    @Test
+    void failedOrderEvictsRecordedResult() {
+        SeckillRequestGuard guard = new SeckillRequestGuard(new SeckillProperties(), new SimpleMeterRegistry());
+        guard.record(1L, 10L, Result.ok("123"));
+        assertEquals("123", guard.check(1L, 10L).getData());
+
+        // 订单失败后不再返回原订单id
+        guard.evict(1L, 10L);
+        assertNull(guard.check(1L, 10L));
+    }
+}
@@ -0,0 +1,66 @@
+import com.hmdp.utils.cache.SingleFlight;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightTest {
+
+    // 并发未命中只触发一次加载
+    @Test
+    public void should_coalesce_concurrent_loads() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(pool.submit(() -> singleFlight.execute("cache:shop:1", () -> {
+                    loads.incrementAndGet();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "shop-1";
+                })));
+            }
+            // 等所有线程都进入等待后再放行加载
+            while (singleFlight.getExecutedCount() + singleFlight.getCoalescedCount() < threads) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for (Future<String> future : futures) {
+                Assertions.assertEquals("shop-1", future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(1, singleFlight.getExecutedCount());
+        Assertions.assertEquals(threads - 1, singleFlight.getCoalescedCount());
+        Assertions.assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    // 加载异常传递给调用者，且不会残留在途记录
+    @Test
+    public void should_propagate_failure_and_allow_retry() {
+        SingleFlight singleFlight = new SingleFlight();
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> singleFlight.execute("k", () -> {
+                    throw new IllegalStateException("db down");
+                }));
+        Assertions.assertEquals(0, singleFlight.getInFlightCount());
+        Assertions.assertEquals("ok", singleFlight.execute("k", () -> "ok"));
+    }
+}
@@ -0,0 +1,44 @@
+import com.hmdp.properties.SeckillProperties;
+import com.hmdp.utils.seckill.SoldOutRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class SoldOutRegistryTest {
+
+    @Test
+    void markBroadcastAndClearFromOtherNode() {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        SoldOutRegistry registry = new SoldOutRegistry(template, mock(RedisMessageListenerContainer.class),
+                new SeckillProperties(), new SimpleMeterRegistry());
+
+        assertFalse(registry.isSoldOut(7L));
+        registry.markSoldOut(7L);
+        // 重复标记不再广播
+        registry.markSoldOut(7L);
+        assertTrue(registry.isSoldOut(7L));
+        verify(template, times(1)).convertAndSend(eq("seckill:sold-out"), anyString());
+
+        registry.onMessage(message("other|C|7"), null);
+        assertFalse(registry.isSoldOut(7L));
+        registry.onMessage(message("other|S|8"), null);
+        assertTrue(registry.isSoldOut(8L));
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage("seckill:sold-out".getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,80 @@
+import com.hmdp.utils.cache.TieredCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TieredCacheTest {
+
+    // 本地缓存命中后不再加载
+    @Test
+    public void should_serve_from_local_after_first_load() {
+        AtomicInteger loads = new AtomicInteger();
+        TieredCache<Long, String> cache = TieredCache.<Long, String>builder("test")
+                .keyPrefix("cache:test:")
+                .loader(id -> {
+                    loads.incrementAndGet();
+                    return "v" + id;
+                })
+                .build();
+
+        Assertions.assertEquals("v1", cache.get(1L));
+        Assertions.assertEquals("v1", cache.get(1L));
+        Assertions.assertEquals(1, loads.get());
+
+        cache.evictLocal(1L);
+        Assertions.assertEquals("v1", cache.get(1L));
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    // 不存在的数据以空值占位缓存
+    @Test
+    public void should_cache_missing_value() {
+        AtomicInteger loads = new AtomicInteger();
+        TieredCache<Long, String> cache = TieredCache.<Long, String>builder("test")
+                .loader(id -> {
+                    loads.incrementAndGet();
+                    return null;
+                })
+                .build();
+
+        Assertions.assertNull(cache.get(404L));
+        Assertions.assertNull(cache.get(404L));
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertSame(TieredCache.NULL_VALUE, cache.getLocal().getIfPresent("404"));
+    }
+
+    // 批量查询只加载本地未命中的id，并保持入参顺序
+    @Test
+    public void should_batch_load_only_missing_ids() {
+        AtomicInteger batches = new AtomicInteger();
+        TieredCache<Long, String> cache = TieredCache.<Long, String>builder("test")
+                .keyPrefix("cache:test:")
+                .dbFallback(id -> "v" + id)
+                .batchFallback(ids -> {
+                    batches.incrementAndGet();
+                    Map<Long, String> result = new HashMap<>();
+                    for (Long id : ids) {
+                        if (id != 3L) {
+                            result.put(id, "v" + id);
+                        }
+                    }
+                    return result;
+                })
+                .build();
+        cache.put(2L, "cached");
+
+        Map<Long, String> result = cache.getAll(Arrays.asList(4L, 2L, 3L, 1L));
+        Assertions.assertEquals(1, batches.get());
+        List<Long> keys = Arrays.asList(result.keySet().toArray(new Long[0]));
+        Assertions.assertEquals(Arrays.asList(4L, 2L, 1L), keys);
+        Assertions.assertEquals("cached", result.get(2L));
+
+        cache.getAll(Arrays.asList(1L, 3L));
+        Assertions.assertEquals(1, batches.get());
+    }
+}
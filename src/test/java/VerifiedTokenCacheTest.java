@@ -0,0 +1,50 @@
+import com.hmdp.utils.jwt.JwtClaimsConstant;
+import com.hmdp.utils.jwt.JwtUtil;
+import com.hmdp.utils.jwt.VerifiedTokenCache;
+import io.jsonwebtoken.ExpiredJwtException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+public class VerifiedTokenCacheTest {
+
+    private static final String SECRET_KEY = "ThisIsA32BytesLongSecretKeyForHS256";
+
+    // 验签通过的token缓存userId，重复请求直接命中
+    @Test
+    public void should_cache_verified_token() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(SECRET_KEY, 100);
+        String token = JwtUtil.createJWT(SECRET_KEY, 3600000L,
+                Collections.singletonMap(JwtClaimsConstant.USER_ID, 1010L));
+
+        Assertions.assertEquals(1010L, cache.getUserId(token));
+        Assertions.assertEquals(1010L, cache.getUserId(token));
+        Assertions.assertEquals(1, cache.size());
+    }
+
+    // token过期后缓存条目同时失效，重新解析抛出过期异常
+    @Test
+    public void should_reverify_after_token_expired() throws InterruptedException {
+        VerifiedTokenCache cache = new VerifiedTokenCache(SECRET_KEY, 100);
+        // exp精确到秒，有效期至少保留1秒
+        String token = JwtUtil.createJWT(SECRET_KEY, 2000L,
+                Collections.singletonMap(JwtClaimsConstant.USER_ID, 1010L));
+
+        Assertions.assertEquals(1010L, cache.getUserId(token));
+        Thread.sleep(2100);
+        Assertions.assertThrows(ExpiredJwtException.class, () -> cache.getUserId(token));
+    }
+
+    // 签名不匹配的token不会被缓存
+    @Test
+    public void should_not_cache_invalid_token() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(SECRET_KEY, 100);
+        String token = JwtUtil.createJWT("AnotherSecretKeyThatIs32BytesLong!!", 3600000L,
+                Collections.singletonMap(JwtClaimsConstant.USER_ID, 1010L));
+
+        Assertions.assertThrows(Exception.class, () -> cache.getUserId(token));
+        Assertions.assertThrows(Exception.class, () -> cache.getUserId(token));
+        Assertions.assertEquals(0, cache.size());
+    }
+}